@@ -0,0 +1,71 @@
+package com.esataydin.benchmark;
+
+import com.esataydin.cart.entity.CartItem;
+import com.esataydin.order.entity.Order;
+import com.esataydin.order.entity.OrderItem;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.entity.Product;
+import com.esataydin.user.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Detached entities shaped like production data, shared by the benchmarks
+public final class Fixtures {
+    
+    private static final Category[] CATEGORIES = categories("Electronics", "Books", "Home & Kitchen", "Sports", "Toys");
+    
+    private Fixtures() {
+    }
+    
+    public static User user() {
+        User user = new User("Jane Customer", "jane.customer@example.com", "$2a$10$hashedpasswordplaceholder");
+        user.setId(42L);
+        return user;
+    }
+    
+    public static Product product(long id) {
+        Product product = new Product(
+                "Product " + id + " - Wireless Noise Cancelling Headphones",
+                new BigDecimal("129.99").add(BigDecimal.valueOf(id % 100)),
+                (int) (id % 500),
+                CATEGORIES[(int) (id % CATEGORIES.length)]
+        );
+        product.setId(id);
+        return product;
+    }
+    
+    private static Category[] categories(String... names) {
+        Category[] categories = new Category[names.length];
+        for (int i = 0; i < names.length; i++) {
+            categories[i] = new Category(names[i]);
+            categories[i].setId(i + 1);
+        }
+        return categories;
+    }
+    
+    public static Order order(int itemCount) {
+        Order order = new Order(user());
+        order.setId(1_000L);
+        order.setCreatedAt(LocalDateTime.of(2025, 1, 15, 10, 30));
+        for (int i = 1; i <= itemCount; i++) {
+            OrderItem item = new OrderItem(order, product(i), 1 + i % 4);
+            item.setId((long) i);
+            order.addOrderItem(item);
+        }
+        return order;
+    }
+    
+    public static List<CartItem> cartItems(int itemCount) {
+        User user = user();
+        List<CartItem> items = new ArrayList<>(itemCount);
+        for (int i = 1; i <= itemCount; i++) {
+            CartItem item = new CartItem(user, product(i), 1 + i % 3);
+            item.setId((long) i);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,82 @@
+package com.esataydin.benchmark;
+
+import com.esataydin.cart.dto.CartItemResponse;
+import com.esataydin.cart.dto.CartResponse;
+import com.esataydin.order.dto.OrderItemResponse;
+import com.esataydin.order.dto.OrderResponse;
+import com.esataydin.order.entity.Order;
+import com.esataydin.product.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Jackson serialization of the largest response bodies, using the same
+// ObjectMapper configuration Spring Boot applies to the HTTP message converters
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+    
+    @Param({"20", "100"})
+    private int items;
+    
+    private ObjectMapper objectMapper;
+    
+    private OrderResponse orderResponse;
+    
+    private CartResponse cartResponse;
+    
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        
+        Order order = Fixtures.order(items);
+        List<OrderItemResponse> orderItems = order.getOrderItems().stream()
+                .map(item -> new OrderItemResponse(
+                        item.getProduct().getId(),
+                        item.getProduct().getName(),
+                        item.getProduct().getPrice(),
+                        item.getProduct().getCategory().getName(),
+                        item.getQuantity(),
+                        item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
+                .toList();
+        orderResponse = new OrderResponse(order.getId(), order.getUser().getId(), order.getCreatedAt(),
+                orderItems, sum(orderItems.stream().map(OrderItemResponse::totalPrice).toList()),
+                orderItems.stream().mapToInt(OrderItemResponse::quantity).sum());
+        
+        List<CartItemResponse> cartItems = IntStream.rangeClosed(1, items)
+                .mapToObj(i -> {
+                    Product product = Fixtures.product(i);
+                    int quantity = 1 + i % 3;
+                    return new CartItemResponse((long) i, product.getId(), product.getName(), product.getPrice(),
+                            product.getCategory().getName(), quantity,
+                            product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+                })
+                .toList();
+        cartResponse = new CartResponse(cartItems,
+                sum(cartItems.stream().map(CartItemResponse::totalPrice).toList()),
+                cartItems.stream().mapToInt(CartItemResponse::quantity).sum());
+    }
+    
+    @Benchmark
+    public byte[] serializeOrderResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(orderResponse);
+    }
+    
+    @Benchmark
+    public byte[] serializeCartResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(cartResponse);
+    }
+    
+    private static BigDecimal sum(List<BigDecimal> values) {
+        return values.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,47 @@
+package com.esataydin.cart.service;
+
+import com.esataydin.benchmark.Fixtures;
+import com.esataydin.cart.dto.CartItemResponse;
+import com.esataydin.cart.dto.CartResponse;
+import com.esataydin.product.entity.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The in-memory part of getCart: the totals reduction over the projected lines
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartMapperBenchmark {
+    
+    @Param({"1", "40", "200"})
+    private int items;
+    
+    private CartMapper cartMapper;
+    
+    private List<CartItemResponse> cartItems;
+    
+    @Setup
+    public void setUp() {
+        cartMapper = new CartMapper();
+        cartItems = Fixtures.cartItems(items).stream()
+                .map(item -> {
+                    Product product = item.getProduct();
+                    return new CartItemResponse(item.getId(), product.getId(), product.getName(), product.getPrice(),
+                            product.getCategory().getName(), item.getQuantity(),
+                            product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+                })
+                .collect(Collectors.toList());
+    }
+    
+    @Benchmark
+    public CartResponse getCartTotals() {
+        return cartMapper.toResponse(cartItems);
+    }
+}
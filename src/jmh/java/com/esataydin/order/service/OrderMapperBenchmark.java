@@ -0,0 +1,60 @@
+package com.esataydin.order.service;
+
+import com.esataydin.benchmark.Fixtures;
+import com.esataydin.order.dto.OrderItemResponse;
+import com.esataydin.order.dto.OrderResponse;
+import com.esataydin.order.entity.Order;
+import com.esataydin.order.entity.OrderItem;
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.service.CategoryService;
+import com.esataydin.product.service.ProductMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The in-memory part of a checkout response: item lines from the reserved products, then the totals
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMapperBenchmark {
+    
+    @Param({"1", "20", "100"})
+    private int items;
+    
+    private OrderMapper orderMapper;
+    
+    private Order order;
+    
+    private List<ProductResponse> products;
+    
+    private List<Integer> quantities;
+    
+    @Setup
+    public void setUp() {
+        orderMapper = new OrderMapper();
+        ProductMapper productMapper = new ProductMapper();
+        ReflectionTestUtils.setField(productMapper, "categoryService", new CategoryService());
+        order = Fixtures.order(items);
+        products = new ArrayList<>(items);
+        quantities = new ArrayList<>(items);
+        for (OrderItem item : order.getOrderItems()) {
+            products.add(productMapper.toResponse(item.getProduct()));
+            quantities.add(item.getQuantity());
+        }
+    }
+    
+    @Benchmark
+    public OrderResponse toResponse() {
+        List<OrderItemResponse> itemResponses = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            itemResponses.add(orderMapper.toItemResponse(products.get(i), quantities.get(i)));
+        }
+        return orderMapper.toResponse(order.getId(), order.getUser().getId(), order.getCreatedAt(), itemResponses);
+    }
+}
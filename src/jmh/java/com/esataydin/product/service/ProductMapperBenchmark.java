@@ -0,0 +1,34 @@
+package com.esataydin.product.service;
+
+import com.esataydin.benchmark.Fixtures;
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+    
+    private ProductMapper productMapper;
+    
+    private Product product;
+    
+    @Setup
+    public void setUp() {
+        productMapper = new ProductMapper();
+        ReflectionTestUtils.setField(productMapper, "categoryService", new CategoryService());
+        product = Fixtures.product(7L);
+    }
+    
+    @Benchmark
+    public ProductResponse toResponse() {
+        return productMapper.toResponse(product);
+    }
+}
@@ -0,0 +1,100 @@
+package com.esataydin.product.service;
+
+import com.esataydin.SpringEcommerceApiApplication;
+import com.esataydin.product.dto.ProductCreateRequest;
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Loading a page of products as managed entities and converting them, against
+// selecting straight into ProductResponse. Runs on the in-memory H2 database of
+// the test profile; add "-prof gc" to the JMH arguments to compare bytes allocated
+// per operation, which includes the entity, proxy and snapshot bookkeeping.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductReadPathBenchmark {
+    
+    private static final int CATALOG_SIZE = 1000;
+    
+    @Param({"20", "100"})
+    private int pageSize;
+    
+    private ConfigurableApplicationContext context;
+    
+    private ProductRepository productRepository;
+    
+    private ProductService productService;
+    
+    private ProductMapper productMapper;
+    
+    private TransactionTemplate readWrite;
+    
+    private TransactionTemplate readOnly;
+    
+    private List<Long> ids;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringEcommerceApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+        productMapper = context.getBean(ProductMapper.class);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            productService.createProduct(new ProductCreateRequest("Product " + i, BigDecimal.valueOf(1000 + i, 2),
+                    i % 7, i % 2 == 0 ? "Books" : "Electronics"));
+        }
+        
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        long firstId = productRepository.findAll().get(0).getId();
+        ids = LongStream.range(firstId, firstId + pageSize).boxed().collect(Collectors.toList());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<ProductResponse> entitiesReadWrite() {
+        return readWrite.execute(status -> loadEntities());
+    }
+    
+    @Benchmark
+    public List<ProductResponse> entitiesReadOnly() {
+        return readOnly.execute(status -> loadEntities());
+    }
+    
+    @Benchmark
+    public List<ProductResponse> projection() {
+        return readOnly.execute(status -> productRepository.findResponsesByIdIn(ids));
+    }
+    
+    private List<ProductResponse> loadEntities() {
+        return productRepository.findAllById(ids).stream()
+                .map(productMapper::toResponse)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,21 @@
+package com.esataydin.auth.security;
+
+import com.esataydin.user.entity.User.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+// Immutable principal built from verified JWT claims, no database lookup involved
+public record AuthenticatedUser(Long id, String email, Role role) implements Principal {
+    
+    @Override
+    public String getName() {
+        return email;
+    }
+    
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
@@ -46,7 +46,7 @@ public class AuthService {
         User savedUser = userRepository.save(user);
         
         // Generate token
-        String token = jwtUtil.generateToken(savedUser.getEmail());
+        String token = jwtUtil.generateToken(savedUser);
         
         return new AuthResponse(token, savedUser.getEmail(), savedUser.getRole().name());
     }
@@ -66,7 +66,7 @@ public class AuthService {
                 .orElseThrow(() -> new AuthException("User not found"));
             
             // Generate token
-            String token = jwtUtil.generateToken(user.getEmail());
+            String token = jwtUtil.generateToken(user);
             
             return new AuthResponse(token, user.getEmail(), user.getRole().name());
             
@@ -1,11 +1,14 @@
 package com.esataydin.cart.controller;
 
 import com.esataydin.cart.dto.CartAddRequest;
+import com.esataydin.cart.dto.CartBatchAddRequest;
 import com.esataydin.cart.dto.CartItemResponse;
 import com.esataydin.cart.dto.CartResponse;
 import com.esataydin.cart.service.CartService;
+import com.esataydin.auth.security.AuthenticatedUser;
 import com.esataydin.exception.ErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -16,7 +19,7 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -44,12 +47,33 @@ public class CartController {
     })
     public ResponseEntity<CartItemResponse> addToCart(
             @Valid @RequestBody CartAddRequest request,
-            Authentication authentication) {
-        String userEmail = authentication.getName();
-        CartItemResponse cartItem = cartService.addToCart(userEmail, request);
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        CartItemResponse cartItem = cartService.addToCart(user.id(), request);
         return ResponseEntity.ok(cartItem);
     }
     
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @Operation(summary = "Add several items to cart",
+            description = "Add a list of products to the user's shopping cart in one request. Either every item is added or none is.",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Items added to cart successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CartResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request, unknown product or insufficient stock",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Access denied - Authentication required",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<CartResponse> addAllToCart(
+            @Valid @RequestBody CartBatchAddRequest request,
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        CartResponse cart = cartService.addAllToCart(user.id(), request);
+        return ResponseEntity.ok(cart);
+    }
+    
     @GetMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @Operation(summary = "Get cart contents", description = "Retrieve all items in the user's shopping cart",
@@ -64,9 +88,8 @@ public class CartController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<CartResponse> getCart(Authentication authentication) {
-        String userEmail = authentication.getName();
-        CartResponse cart = cartService.getCart(userEmail);
+    public ResponseEntity<CartResponse> getCart(@Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        CartResponse cart = cartService.getCart(user.id());
         return ResponseEntity.ok(cart);
     }
     
@@ -85,9 +108,8 @@ public class CartController {
     })
     public ResponseEntity<String> removeFromCart(
             @PathVariable Long productId,
-            Authentication authentication) {
-        String userEmail = authentication.getName();
-        cartService.removeFromCart(userEmail, productId);
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        cartService.removeFromCart(user.id(), productId);
         return ResponseEntity.ok("Product removed from cart successfully");
     }
     
@@ -104,9 +126,8 @@ public class CartController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<String> clearCart(Authentication authentication) {
-        String userEmail = authentication.getName();
-        cartService.clearCart(userEmail);
+    public ResponseEntity<String> clearCart(@Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        cartService.clearCart(user.id());
         return ResponseEntity.ok("Cart cleared successfully");
     }
 }
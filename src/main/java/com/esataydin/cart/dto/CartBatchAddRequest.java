@@ -0,0 +1,21 @@
+package com.esataydin.cart.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchAddRequest {
+    
+    @NotEmpty(message = "Cart items cannot be empty")
+    @Size(max = 100, message = "Cannot add more than 100 items at once")
+    @Valid
+    private List<CartAddRequest> items;
+}
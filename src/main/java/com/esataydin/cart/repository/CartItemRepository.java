@@ -1,20 +1,60 @@
 package com.esataydin.cart.repository;
 
+import com.esataydin.cart.dto.CartItemResponse;
 import com.esataydin.cart.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemUpsertRepository {
     
     List<CartItem> findByUserId(Long userId);
     
+    // Cart lines with their product columns, without loading entities
+    @Query("SELECT new com.esataydin.cart.dto.CartItemResponse(" +
+           "ci.id, p.id, p.name, p.price, c.name, ci.quantity, p.price * ci.quantity) " +
+           "FROM CartItem ci JOIN ci.product p JOIN p.category c " +
+           "WHERE ci.user.id = :userId ORDER BY ci.id")
+    List<CartItemResponse> findResponsesByUserId(@Param("userId") Long userId);
+    
+    List<CartItem> findByUserIdIn(Collection<Long> userIds);
+    
+    // Plain line columns, for rebuilding a cart outside the persistence context
+    @Query("SELECT new com.esataydin.cart.repository.CartItemRepository$CartRow(ci.id, ci.product.id, ci.quantity) " +
+           "FROM CartItem ci WHERE ci.user.id = :userId ORDER BY ci.id")
+    List<CartRow> findRowsByUserId(@Param("userId") Long userId);
+    
     Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
     
-    void deleteByUserId(Long userId);
+    // Quantities already in the cart, without loading the lines into the persistence context
+    @Query("SELECT c.product.id AS productId, c.quantity AS quantity FROM CartItem c " +
+           "WHERE c.user.id = :userId AND c.product.id IN :productIds")
+    List<CartQuantity> findQuantitiesByUserIdAndProductIdIn(@Param("userId") Long userId,
+                                                            @Param("productIds") Collection<Long> productIds);
+    
+    // Bulk deletes: one statement instead of loading and removing every line. Pending changes
+    // are flushed first and the persistence context is cleared so no deleted line stays managed.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId AND c.product.id = :productId")
+    int deleteByUserIdAndProductId(@Param("userId") Long userId, @Param("productId") Long productId);
+    
+    interface CartQuantity {
+        Long getProductId();
+        
+        Integer getQuantity();
+    }
     
-    void deleteByUserIdAndProductId(Long userId, Long productId);
+    record CartRow(Long id, Long productId, Integer quantity) {
+    }
 }
@@ -0,0 +1,21 @@
+package com.esataydin.cart.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CartItemUpsertRepository {
+    
+    // Inserts the cart line or adds to its quantity in one statement, as long as the
+    // resulting quantity stays within maxQuantity. Empty when that limit was exceeded.
+    Optional<CartLine> addQuantity(Long userId, Long productId, int quantity, int maxQuantity);
+    
+    // The same upsert for several products in one round trip. Returns the product ids
+    // whose line was left unchanged because of its limit.
+    List<Long> addQuantities(Long userId, List<CartAddition> additions);
+    
+    record CartLine(Long id, Integer quantity) {
+    }
+    
+    record CartAddition(Long productId, int quantity, int maxQuantity) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.esataydin.cart.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Native upsert relying on the unique (user_id, product_id) constraint. Ids are taken
+// straight from cart_items_seq: with the pooled-lo optimizer every sequence value
+// starts a block of ids of its own, so they never collide with Hibernate's.
+class CartItemUpsertRepositoryImpl implements CartItemUpsertRepository {
+    
+    // Parameters: user id, product id, quantity, max quantity
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO cart_items (id, user_id, product_id, quantity) " +
+            "VALUES (nextval('cart_items_seq'), ?, ?, ?) " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity " +
+            "WHERE cart_items.quantity + EXCLUDED.quantity <= ?";
+    
+    // The same upsert for many products in one statement. The additions come in as arrays;
+    // RETURNING lists the lines actually written, since a rewritten batch of single upserts
+    // only reports SUCCESS_NO_INFO and would hide the refused ones.
+    // Parameters: user id, product ids, quantities, max quantities
+    private static final String POSTGRES_MULTI_UPSERT =
+            "WITH additions AS (SELECT * FROM unnest(?::bigint[], ?::int[], ?::int[]) " +
+            "AS a (product_id, quantity, max_quantity)) " +
+            "INSERT INTO cart_items (id, user_id, product_id, quantity) " +
+            "SELECT nextval('cart_items_seq'), ?, product_id, quantity FROM additions " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity " +
+            "WHERE cart_items.quantity + EXCLUDED.quantity <= " +
+            "(SELECT max_quantity FROM additions WHERE additions.product_id = EXCLUDED.product_id) " +
+            "RETURNING product_id";
+    
+    // H2 has no ON CONFLICT; a standard MERGE does the same
+    private static final String H2_UPSERT =
+            "MERGE INTO cart_items t USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), " +
+            "CAST(? AS INTEGER))) s (user_id, product_id, quantity) " +
+            "ON t.user_id = s.user_id AND t.product_id = s.product_id " +
+            "WHEN MATCHED AND t.quantity + s.quantity <= ? THEN UPDATE SET quantity = t.quantity + s.quantity " +
+            "WHEN NOT MATCHED THEN INSERT (id, user_id, product_id, quantity) " +
+            "VALUES (NEXT VALUE FOR cart_items_seq, s.user_id, s.product_id, s.quantity)";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private volatile Boolean h2;
+    
+    @Override
+    public Optional<CartLine> addQuantity(Long userId, Long productId, int quantity, int maxQuantity) {
+        // The new line is read back from the same statement: RETURNING, or H2's FINAL TABLE
+        String sql = isH2()
+                ? "SELECT id, quantity FROM FINAL TABLE (" + H2_UPSERT + ")"
+                : POSTGRES_UPSERT + " RETURNING id, quantity";
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, userId, new CartAddition(productId, quantity, maxQuantity));
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next()
+                            ? Optional.of(new CartLine(rows.getLong(1), rows.getInt(2)))
+                            : Optional.empty();
+                }
+            }
+        });
+    }
+    
+    @Override
+    public List<Long> addQuantities(Long userId, List<CartAddition> additions) {
+        if (!isH2()) {
+            return addQuantitiesReturning(userId, additions);
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(H2_UPSERT)) {
+                for (CartAddition addition : additions) {
+                    bind(statement, userId, addition);
+                    statement.addBatch();
+                }
+                // H2 reports a count per MERGE, 0 where the quantity limit refused the update
+                int[] counts = statement.executeBatch();
+                List<Long> rejected = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        rejected.add(additions.get(i).productId());
+                    }
+                }
+                return rejected;
+            }
+        });
+    }
+    
+    private List<Long> addQuantitiesReturning(Long userId, List<CartAddition> additions) {
+        // Ascending product ids, so concurrent additions to one cart lock its lines in the same order
+        List<CartAddition> sorted = new ArrayList<>(additions);
+        sorted.sort(Comparator.comparing(CartAddition::productId));
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(POSTGRES_MULTI_UPSERT)) {
+                statement.setArray(1, connection.createArrayOf("bigint",
+                        sorted.stream().map(CartAddition::productId).toArray()));
+                statement.setArray(2, connection.createArrayOf("integer",
+                        sorted.stream().map(CartAddition::quantity).toArray()));
+                statement.setArray(3, connection.createArrayOf("integer",
+                        sorted.stream().map(CartAddition::maxQuantity).toArray()));
+                statement.setLong(4, userId);
+                
+                Set<Long> written = new HashSet<>();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        written.add(rows.getLong(1));
+                    }
+                }
+                List<Long> rejected = new ArrayList<>();
+                for (CartAddition addition : sorted) {
+                    if (!written.contains(addition.productId())) {
+                        rejected.add(addition.productId());
+                    }
+                }
+                return rejected;
+            }
+        });
+    }
+    
+    private void bind(PreparedStatement statement, Long userId, CartAddition addition) throws SQLException {
+        statement.setLong(1, userId);
+        statement.setLong(2, addition.productId());
+        statement.setInt(3, addition.quantity());
+        statement.setInt(4, addition.maxQuantity());
+    }
+    
+    private boolean isH2() {
+        if (h2 == null) {
+            h2 = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof H2Dialect;
+        }
+        return h2;
+    }
+}
@@ -0,0 +1,25 @@
+package com.esataydin.cart.service;
+
+import com.esataydin.cart.dto.CartItemResponse;
+import com.esataydin.cart.dto.CartResponse;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Builds the cart response and its totals from the cart lines
+@Component
+public class CartMapper {
+    
+    public CartResponse toResponse(List<CartItemResponse> itemResponses) {
+        BigDecimal totalAmount = itemResponses.stream()
+                .map(CartItemResponse::totalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        
+        Integer totalItems = itemResponses.stream()
+                .mapToInt(CartItemResponse::quantity)
+                .sum();
+        
+        return new CartResponse(itemResponses, totalAmount, totalItems);
+    }
+}
@@ -1,23 +1,26 @@
 package com.esataydin.cart.service;
 
 import com.esataydin.cart.dto.CartAddRequest;
+import com.esataydin.cart.dto.CartBatchAddRequest;
 import com.esataydin.cart.dto.CartItemResponse;
 import com.esataydin.cart.dto.CartResponse;
 import com.esataydin.cart.entity.CartItem;
 import com.esataydin.cart.exception.CartException;
 import com.esataydin.cart.repository.CartItemRepository;
-import com.esataydin.product.entity.Product;
+import com.esataydin.product.dto.ProductResponse;
 import com.esataydin.product.exception.ProductException;
-import com.esataydin.product.repository.ProductRepository;
-import com.esataydin.user.entity.User;
-import com.esataydin.user.repository.UserRepository;
+import com.esataydin.product.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,110 +31,146 @@ public class CartService {
     private CartItemRepository cartItemRepository;
     
     @Autowired
-    private ProductRepository productRepository;
+    private ProductService productService;
     
     @Autowired
-    private UserRepository userRepository;
+    private CartMapper cartMapper;
     
-    public CartItemResponse addToCart(String userEmail, CartAddRequest request) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CartException("User not found"));
-        
-        // Find product
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new ProductException("Product not found"));
+    // Only present when cart.write-behind.enabled is set
+    @Autowired(required = false)
+    private WriteBehindCartStore cartStore;
+    
+    public CartItemResponse addToCart(Long userId, CartAddRequest request) {
+        // Find product (served from the product cache)
+        ProductResponse product = productService.getProductById(request.getProductId());
         
         // Check if product has enough stock
-        if (product.getStock() < request.getQuantity()) {
-            throw new CartException("Insufficient stock. Available: " + product.getStock());
+        if (product.stock() < request.getQuantity()) {
+            throw new CartException("Insufficient stock. Available: " + product.stock());
         }
         
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByUserIdAndProductId(
-                user.getId(), product.getId());
+        // Insert the line or add to it in one step, capped at the available stock
+        Optional<CartItemRepository.CartLine> added = cartStore != null
+                ? cartStore.addQuantity(userId, product.id(), request.getQuantity(), product.stock())
+                : cartItemRepository.addQuantity(userId, product.id(), request.getQuantity(), product.stock());
+        CartItemRepository.CartLine line = added
+                .orElseThrow(() -> new CartException("Insufficient stock. Available: " + product.stock() +
+                        ", Already in cart: " + getQuantityInCart(userId, product.id())));
         
-        CartItem cartItem;
-        if (existingItem.isPresent()) {
-            // Update quantity if item already exists
-            cartItem = existingItem.get();
-            int newQuantity = cartItem.getQuantity() + request.getQuantity();
-            
-            // Check stock again for new total quantity
-            if (product.getStock() < newQuantity) {
-                throw new CartException("Insufficient stock. Available: " + product.getStock() + 
-                                      ", Already in cart: " + cartItem.getQuantity());
-            }
-            
-            cartItem.setQuantity(newQuantity);
-        } else {
-            // Create new cart item
-            cartItem = new CartItem(user, product, request.getQuantity());
-        }
-        
-        cartItem = cartItemRepository.save(cartItem);
-        return convertToCartItemResponse(cartItem);
+        BigDecimal totalPrice = product.price().multiply(BigDecimal.valueOf(line.quantity()));
+        return new CartItemResponse(
+                line.id(),
+                product.id(),
+                product.name(),
+                product.price(),
+                product.category(),
+                line.quantity(),
+                totalPrice
+        );
     }
     
-    public CartResponse getCart(String userEmail) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CartException("User not found"));
-        
-        // Get all cart items for user
-        List<CartItem> cartItems = cartItemRepository.findByUserId(user.getId());
+    // All lines in one transaction: products and stock are checked up front with one
+    // lookup each, then the upserts go out as one batch. Any failure leaves the cart as it was.
+    public CartResponse addAllToCart(Long userId, CartBatchAddRequest request) {
+        // The same product listed twice is added up into one line
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartAddRequest item : request.getItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
         
-        // Convert to response DTOs
-        List<CartItemResponse> itemResponses = cartItems.stream()
-                .map(this::convertToCartItemResponse)
-                .collect(Collectors.toList());
+        // Products served from the product cache, misses loaded in one query
+        Map<Long, ProductResponse> products = productService.getProductsByIds(new ArrayList<>(quantities.keySet())).stream()
+                .collect(Collectors.toMap(ProductResponse::id, Function.identity()));
+        Map<Long, Integer> inCart = cartStore != null
+                ? quantities.keySet().stream()
+                        .collect(Collectors.toMap(Function.identity(), productId -> cartStore.getQuantity(userId, productId)))
+                : cartItemRepository.findQuantitiesByUserIdAndProductIdIn(userId, quantities.keySet()).stream()
+                        .collect(Collectors.toMap(CartItemRepository.CartQuantity::getProductId,
+                                CartItemRepository.CartQuantity::getQuantity));
         
-        // Calculate totals
-        BigDecimal totalAmount = itemResponses.stream()
-                .map(CartItemResponse::totalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<CartItemRepository.CartAddition> additions = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            ProductResponse product = products.get(productId);
+            if (product == null) {
+                throw new ProductException("Product not found with id: " + productId);
+            }
+            int alreadyInCart = inCart.getOrDefault(productId, 0);
+            if (alreadyInCart + quantity > product.stock()) {
+                throw new CartException("Insufficient stock for product: " + product.name() +
+                        ". Available: " + product.stock() + ", Already in cart: " + alreadyInCart);
+            }
+            additions.add(new CartItemRepository.CartAddition(productId, quantity, product.stock()));
+        });
         
-        Integer totalItems = itemResponses.stream()
-                .mapToInt(CartItemResponse::quantity)
-                .sum();
+        // The upserts keep their stock cap; a line the database refused rolls the whole batch back
+        List<Long> rejected = cartStore != null
+                ? cartStore.addQuantities(userId, additions)
+                : cartItemRepository.addQuantities(userId, additions);
+        if (!rejected.isEmpty()) {
+            ProductResponse product = products.get(rejected.get(0));
+            throw new CartException("Insufficient stock for product: " + product.name() +
+                    ". Available: " + product.stock());
+        }
         
-        return new CartResponse(itemResponses, totalAmount, totalItems);
+        return getCart(userId);
     }
     
-    public void removeFromCart(String userEmail, Long productId) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CartException("User not found"));
+    @Transactional(readOnly = true)
+    public CartResponse getCart(Long userId) {
+        // Cart lines with their product columns in one query, or from memory and the product cache
+        List<CartItemResponse> cartItems = cartStore != null
+                ? convertToCartItemResponses(cartStore.getLines(userId))
+                : cartItemRepository.findResponsesByUserId(userId);
         
-        // Check if cart item exists
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductId(user.getId(), productId)
-                .orElseThrow(() -> new CartException("Product not found in cart"));
+        return cartMapper.toResponse(cartItems);
+    }
+    
+    public void removeFromCart(Long userId, Long productId) {
+        if (cartStore != null) {
+            if (!cartStore.remove(userId, productId)) {
+                throw new CartException("Product not found in cart");
+            }
+            return;
+        }
         
-        // Delete the cart item
-        cartItemRepository.delete(cartItem);
+        // Delete the cart item; nothing deleted means it was not in the cart
+        if (cartItemRepository.deleteByUserIdAndProductId(userId, productId) == 0) {
+            throw new CartException("Product not found in cart");
+        }
     }
     
-    public void clearCart(String userEmail) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new CartException("User not found"));
+    public void clearCart(Long userId) {
+        if (cartStore != null) {
+            cartStore.clear(userId);
+            return;
+        }
         
         // Delete all cart items for the user
-        cartItemRepository.deleteByUserId(user.getId());
+        cartItemRepository.deleteByUserId(userId);
     }
     
-    private CartItemResponse convertToCartItemResponse(CartItem cartItem) {
-        Product product = cartItem.getProduct();
-        BigDecimal totalPrice = product.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-        
-        return new CartItemResponse(
-                cartItem.getId(),
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                product.getCategory(),
-                cartItem.getQuantity(),
-                totalPrice
-        );
+    private int getQuantityInCart(Long userId, Long productId) {
+        if (cartStore != null) {
+            return cartStore.getQuantity(userId, productId);
+        }
+        return cartItemRepository.findByUserIdAndProductId(userId, productId)
+                .map(CartItem::getQuantity)
+                .orElse(0);
+    }
+    
+    // Lines of a product deleted in the meantime are left out
+    private List<CartItemResponse> convertToCartItemResponses(List<CartItemRepository.CartRow> rows) {
+        Map<Long, ProductResponse> products = productService.getProductsByIds(
+                        rows.stream().map(CartItemRepository.CartRow::productId).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(ProductResponse::id, Function.identity()));
+        List<CartItemResponse> items = new ArrayList<>(rows.size());
+        for (CartItemRepository.CartRow row : rows) {
+            ProductResponse product = products.get(row.productId());
+            if (product != null) {
+                items.add(new CartItemResponse(row.id(), product.id(), product.name(), product.price(), product.category(),
+                        row.quantity(), product.price().multiply(BigDecimal.valueOf(row.quantity()))));
+            }
+        }
+        return items;
     }
 }
@@ -0,0 +1,439 @@
+package com.esataydin.cart.service;
+
+import com.esataydin.cart.entity.CartItem;
+import com.esataydin.cart.repository.CartItemRepository;
+import com.esataydin.cart.repository.CartItemUpsertRepository;
+import com.esataydin.product.repository.ProductRepository;
+import com.esataydin.product.service.ProductChangedEvent;
+import com.esataydin.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+// Carts held in memory and written behind to cart_items. Users are spread over shards,
+// each an LRU map of carts behind its own lock. A mutation only marks the cart dirty;
+// a background thread writes the latest state of every dirty cart in one transaction,
+// so many changes to a cart between flushes cost one write. A cart that is not in
+// memory is rebuilt from the table on first access, which is also how carts come
+// back after a restart; the table is read outside the shard lock. A cart whose write
+// fails stays dirty and is retried with its latest state; after MAX_FLUSH_ATTEMPTS
+// failures it is reset to what the table holds and the lost lines are logged.
+// Changes made since the last flush are lost if the process dies without shutting down.
+@Component
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class WriteBehindCartStore {
+    
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${cart.write-behind.flush-interval:1s}")
+    private Duration flushInterval;
+    
+    @Value("${cart.write-behind.max-carts:100000}")
+    private int maxCarts;
+    
+    @Value("${cart.write-behind.shards:64}")
+    private int shardCount;
+    
+    private Shard[] shards;
+    
+    private int shardCapacity;
+    
+    private final Object flushLock = new Object();
+    
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    void start() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        shardCapacity = Math.max(1, maxCarts / shardCount);
+        flushExecutor.scheduleWithFixedDelay(this::scheduledFlush,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    // Runs before the repositories and the data source are destroyed, since this bean depends on them
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (Long userId : shard.dirty) {
+                    log.warn("Cart of user {} could not be saved before shutdown, losing lines {}",
+                            userId, quantities(shard.carts.get(userId)));
+                }
+            }
+        }
+    }
+    
+    // Same contract as CartItemUpsertRepository.addQuantity. The line id is null until the line has been flushed.
+    public Optional<CartItemUpsertRepository.CartLine> addQuantity(Long userId, Long productId, int quantity, int maxQuantity) {
+        return withCart(userId, (shard, cart) -> {
+            Line line = cart.lines.get(productId);
+            int total = (line != null ? line.quantity : 0) + quantity;
+            if (total > maxQuantity) {
+                return Optional.empty();
+            }
+            if (line == null) {
+                line = new Line(null, 0);
+                cart.lines.put(productId, line);
+            }
+            line.quantity = total;
+            markDirty(shard, userId, cart);
+            return Optional.of(new CartItemUpsertRepository.CartLine(line.id, line.quantity));
+        });
+    }
+    
+    // Same contract as CartItemUpsertRepository.addQuantities; nothing is added unless every line fits
+    public List<Long> addQuantities(Long userId, List<CartItemUpsertRepository.CartAddition> additions) {
+        return withCart(userId, (shard, cart) -> {
+            List<Long> rejected = new ArrayList<>();
+            for (CartItemUpsertRepository.CartAddition addition : additions) {
+                Line line = cart.lines.get(addition.productId());
+                if ((line != null ? line.quantity : 0) + addition.quantity() > addition.maxQuantity()) {
+                    rejected.add(addition.productId());
+                }
+            }
+            if (!rejected.isEmpty()) {
+                return rejected;
+            }
+            for (CartItemUpsertRepository.CartAddition addition : additions) {
+                cart.lines.computeIfAbsent(addition.productId(), productId -> new Line(null, 0)).quantity += addition.quantity();
+            }
+            markDirty(shard, userId, cart);
+            return rejected;
+        });
+    }
+    
+    public List<CartItemRepository.CartRow> getLines(Long userId) {
+        return withCart(userId, (shard, cart) -> {
+            List<CartItemRepository.CartRow> rows = new ArrayList<>();
+            cart.lines.forEach((productId, line) ->
+                    rows.add(new CartItemRepository.CartRow(line.id, productId, line.quantity)));
+            return rows;
+        });
+    }
+    
+    public int getQuantity(Long userId, Long productId) {
+        return withCart(userId, (shard, cart) -> {
+            Line line = cart.lines.get(productId);
+            return line != null ? line.quantity : 0;
+        });
+    }
+    
+    public boolean remove(Long userId, Long productId) {
+        return withCart(userId, (shard, cart) -> {
+            if (cart.lines.remove(productId) == null) {
+                return false;
+            }
+            markDirty(shard, userId, cart);
+            return true;
+        });
+    }
+    
+    public void clear(Long userId) {
+        withCart(userId, (shard, cart) -> {
+            if (!cart.lines.isEmpty()) {
+                cart.lines.clear();
+                markDirty(shard, userId, cart);
+            }
+            return null;
+        });
+    }
+    
+    // For checkout: the cart is only emptied once the order is committed
+    public void clearAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear(userId);
+                }
+            });
+        } else {
+            clear(userId);
+        }
+    }
+    
+    // A deleted product would fail the next flush on its foreign key, so it leaves every cart
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() != ProductChangedEvent.Type.DELETED) {
+            return;
+        }
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.carts.forEach((userId, cart) -> {
+                    if (cart.lines.remove(event.id()) != null) {
+                        markDirty(shard, userId, cart);
+                    }
+                });
+            }
+        }
+    }
+    
+    public void flush() {
+        synchronized (flushLock) {
+            // Take the latest state of every dirty cart; carts with a write in flight are never evicted
+            Map<Long, Map<Long, Integer>> snapshots = new LinkedHashMap<>();
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    for (Long userId : shard.dirty) {
+                        Cart cart = shard.carts.get(userId);
+                        cart.dirty = false;
+                        cart.flushing = true;
+                        snapshots.put(userId, quantities(cart));
+                    }
+                    shard.dirty.clear();
+                }
+            }
+            if (snapshots.isEmpty()) {
+                return;
+            }
+            
+            Map<Long, Map<Long, Long>> ids;
+            Set<Long> failed = new HashSet<>();
+            try {
+                ids = transactionTemplate.execute(status -> write(snapshots));
+            } catch (RuntimeException e) {
+                // One bad cart should not hold back the others: retry them one by one
+                log.warn("Flushing {} carts failed, retrying them one at a time", snapshots.size(), e);
+                ids = new HashMap<>();
+                for (Map.Entry<Long, Map<Long, Integer>> snapshot : snapshots.entrySet()) {
+                    try {
+                        ids.putAll(transactionTemplate.execute(status -> write(Map.ofEntries(snapshot))));
+                    } catch (RuntimeException userFailure) {
+                        log.warn("Writing the cart of user {} failed", snapshot.getKey(), userFailure);
+                        failed.add(snapshot.getKey());
+                    }
+                }
+            }
+            
+            // Hand out the ids of newly written lines and let the carts be evicted again
+            List<Long> givenUp = new ArrayList<>();
+            for (Long userId : snapshots.keySet()) {
+                Shard shard = shard(userId);
+                synchronized (shard) {
+                    Cart cart = shard.carts.get(userId);
+                    if (failed.contains(userId)) {
+                        // Retried with its latest state, which includes changes made during this flush.
+                        // A cart being given up on stays flushing, so it is not evicted before reconcile.
+                        if (++cart.failedFlushes < MAX_FLUSH_ATTEMPTS) {
+                            cart.flushing = false;
+                            markDirty(shard, userId, cart);
+                        } else {
+                            givenUp.add(userId);
+                        }
+                        continue;
+                    }
+                    cart.flushing = false;
+                    cart.failedFlushes = 0;
+                    shard.writes++;
+                    ids.getOrDefault(userId, Map.of()).forEach((productId, id) -> {
+                        Line line = cart.lines.get(productId);
+                        if (line != null) {
+                            line.id = id;
+                        }
+                    });
+                    evict(shard, shardCapacity);
+                }
+            }
+            givenUp.forEach(this::reconcile);
+        }
+    }
+    
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing carts failed", e);
+        }
+    }
+    
+    // Makes the table match the snapshots: update or delete the existing lines, insert the
+    // new ones. Hibernate sends each kind of statement as JDBC batches on commit.
+    private Map<Long, Map<Long, Long>> write(Map<Long, Map<Long, Integer>> snapshots) {
+        Map<Long, Map<Long, CartItem>> existing = cartItemRepository.findByUserIdIn(snapshots.keySet()).stream()
+                .collect(Collectors.groupingBy(item -> item.getUser().getId(),
+                        Collectors.toMap(item -> item.getProduct().getId(), item -> item)));
+        
+        List<CartItem> inserted = new ArrayList<>();
+        List<CartItem> deleted = new ArrayList<>();
+        snapshots.forEach((userId, quantities) -> {
+            Map<Long, CartItem> items = existing.getOrDefault(userId, Map.of());
+            items.forEach((productId, item) -> {
+                Integer quantity = quantities.get(productId);
+                if (quantity == null) {
+                    deleted.add(item);
+                } else {
+                    item.setQuantity(quantity);
+                }
+            });
+            quantities.forEach((productId, quantity) -> {
+                if (!items.containsKey(productId)) {
+                    inserted.add(new CartItem(userRepository.getReferenceById(userId),
+                            productRepository.getReferenceById(productId), quantity));
+                }
+            });
+        });
+        cartItemRepository.deleteAll(deleted);
+        cartItemRepository.saveAll(inserted);
+        
+        Map<Long, Map<Long, Long>> ids = new HashMap<>();
+        existing.forEach((userId, items) -> items.forEach((productId, item) ->
+                ids.computeIfAbsent(userId, key -> new HashMap<>()).put(productId, item.getId())));
+        for (CartItem item : inserted) {
+            ids.computeIfAbsent(item.getUser().getId(), key -> new HashMap<>()).put(item.getProduct().getId(), item.getId());
+        }
+        return ids;
+    }
+    
+    // Replaces a cart that keeps failing to write with what the table holds
+    private void reconcile(Long userId) {
+        List<CartItemRepository.CartRow> rows = cartItemRepository.findRowsByUserId(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            Cart cart = shard.carts.get(userId);
+            Map<Long, Integer> unsaved = quantities(cart);
+            cart.lines.clear();
+            for (CartItemRepository.CartRow row : rows) {
+                cart.lines.put(row.productId(), new Line(row.id(), row.quantity()));
+            }
+            log.error("Giving up on saving the cart of user {} after {} attempts, losing lines {} (saved lines {})",
+                    userId, MAX_FLUSH_ATTEMPTS, unsaved, quantities(cart));
+            cart.dirty = false;
+            cart.flushing = false;
+            cart.failedFlushes = 0;
+            shard.dirty.remove(userId);
+            shard.writes++;
+        }
+    }
+    
+    
+    private Shard shard(Long userId) {
+        return shards[Math.floorMod(Long.hashCode(userId), shards.length)];
+    }
+    
+    // Runs the action on the user's cart with the shard lock held. A cart that is not in
+    // memory is read from the table without the lock; if a flush wrote to the shard in the
+    // meantime that read may be stale, so it is discarded and repeated.
+    private <T> T withCart(Long userId, BiFunction<Shard, Cart, T> action) {
+        Shard shard = shard(userId);
+        while (true) {
+            long writes;
+            synchronized (shard) {
+                Cart cart = shard.carts.get(userId);
+                if (cart != null) {
+                    return action.apply(shard, cart);
+                }
+                writes = shard.writes;
+            }
+            List<CartItemRepository.CartRow> rows = cartItemRepository.findRowsByUserId(userId);
+            synchronized (shard) {
+                Cart cart = shard.carts.get(userId);
+                if (cart == null && shard.writes == writes) {
+                    cart = new Cart();
+                    for (CartItemRepository.CartRow row : rows) {
+                        cart.lines.put(row.productId(), new Line(row.id(), row.quantity()));
+                    }
+                    evict(shard, shardCapacity - 1);
+                    shard.carts.put(userId, cart);
+                }
+                if (cart != null) {
+                    return action.apply(shard, cart);
+                }
+            }
+        }
+    }
+    
+    private static Map<Long, Integer> quantities(Cart cart) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        cart.lines.forEach((productId, line) -> quantities.put(productId, line.quantity));
+        return quantities;
+    }
+    
+    private void markDirty(Shard shard, Long userId, Cart cart) {
+        cart.dirty = true;
+        shard.dirty.add(userId);
+    }
+    
+    // Least recently used first; carts with unsaved changes stay until they are written
+    private void evict(Shard shard, int capacity) {
+        Iterator<Cart> carts = shard.carts.values().iterator();
+        while (shard.carts.size() > capacity && carts.hasNext()) {
+            Cart cart = carts.next();
+            if (!cart.dirty && !cart.flushing) {
+                carts.remove();
+            }
+        }
+    }
+    
+    private static final class Shard {
+        private final LinkedHashMap<Long, Cart> carts = new LinkedHashMap<>(16, 0.75f, true);
+        private final Set<Long> dirty = new LinkedHashSet<>();
+        // Carts of this shard written to the table so far, see withCart
+        private long writes;
+    }
+    
+    private static final class Cart {
+        private final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        private boolean dirty;
+        private boolean flushing;
+        private int failedFlushes;
+    }
+    
+    private static final class Line {
+        private Long id;
+        private int quantity;
+        
+        private Line(Long id, int quantity) {
+            this.id = id;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.esataydin.order.controller;
 
 import com.esataydin.order.dto.OrderCreateRequest;
+import com.esataydin.order.dto.OrderPageResponse;
 import com.esataydin.order.dto.OrderResponse;
 import com.esataydin.order.service.OrderService;
+import com.esataydin.auth.security.AuthenticatedUser;
 import com.esataydin.exception.ErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -17,11 +19,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
@@ -47,9 +47,8 @@ public class OrderController {
     })
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody OrderCreateRequest request,
-            Authentication authentication) {
-        String userEmail = authentication.getName();
-        OrderResponse order = orderService.createOrder(userEmail, request);
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        OrderResponse order = orderService.createOrder(user.id(), request);
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
     
@@ -67,30 +66,34 @@ public class OrderController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<OrderResponse> createOrderFromCart(Authentication authentication) {
-        String userEmail = authentication.getName();
-        OrderResponse order = orderService.createOrderFromCart(userEmail);
+    public ResponseEntity<OrderResponse> createOrderFromCart(@Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        OrderResponse order = orderService.createOrderFromCart(user.id());
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
     
     @GetMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    @Operation(summary = "Get user's order history", description = "Retrieve all orders for the authenticated user",
+    @Operation(summary = "Get user's order history",
+            description = "Retrieve the authenticated user's orders page by page, newest first. "
+                    + "Pass the returned nextCursor as 'after' to fetch the next page.",
             security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order history retrieved successfully",
-                    content = @Content(mediaType = "application/json", 
-                    array = @ArraySchema(schema = @Schema(implementation = OrderResponse.class)))),
-            @ApiResponse(responseCode = "400", description = "Invalid request",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request - invalid cursor or limit",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "403", description = "Access denied - Authentication required",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<List<OrderResponse>> getUserOrders(Authentication authentication) {
-        String userEmail = authentication.getName();
-        List<OrderResponse> orders = orderService.getUserOrders(userEmail);
+    public ResponseEntity<OrderPageResponse> getUserOrders(
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page")
+            @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Maximum number of orders to return (capped by the server)", example = "10")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser user) {
+        OrderPageResponse orders = orderService.getUserOrders(user.id(), after, limit);
         return ResponseEntity.ok(orders);
     }
 }
@@ -0,0 +1,10 @@
+package com.esataydin.order.dto;
+
+import java.util.List;
+
+public record OrderPageResponse(
+    List<OrderResponse> items,
+    String nextCursor,
+    boolean hasMore
+) {
+}
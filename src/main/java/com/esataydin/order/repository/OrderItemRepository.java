@@ -1,13 +1,43 @@
 package com.esataydin.order.repository;
 
+import com.esataydin.order.dto.OrderItemResponse;
 import com.esataydin.order.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
+    
+    @Query("SELECT oi.product.id AS productId, SUM(oi.quantity) AS unitsSold FROM OrderItem oi GROUP BY oi.product.id")
+    List<ProductSales> sumQuantityByProduct();
+    
+    // Items of a page of orders with their product columns, without loading entities
+    @Query("SELECT new com.esataydin.order.repository.OrderItemRepository$OrderLine(" +
+           "oi.order.id, p.id, p.name, p.price, c.name, oi.quantity) " +
+           "FROM OrderItem oi JOIN oi.product p JOIN p.category c " +
+           "WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+    
+    interface ProductSales {
+        Long getProductId();
+        
+        Long getUnitsSold();
+    }
+    
+    record OrderLine(Long orderId, Long productId, String productName, BigDecimal productPrice,
+                     String productCategory, Integer quantity) {
+        
+        public OrderItemResponse toResponse() {
+            return new OrderItemResponse(productId, productName, productPrice, productCategory, quantity,
+                    productPrice.multiply(BigDecimal.valueOf(quantity)));
+        }
+    }
 }
@@ -1,13 +1,33 @@
 package com.esataydin.order.repository;
 
 import com.esataydin.order.entity.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
-    List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
+    // Keyset pagination over (createdAt, id), newest first. Only the columns the
+    // response needs are selected, the items are fetched by OrderItemRepository.
+    @Query("SELECT new com.esataydin.order.repository.OrderRepository$OrderHeader(o.id, o.user.id, o.createdAt) " +
+           "FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHeader> findHeadersByUserId(@Param("userId") Long userId, Limit limit);
+    
+    @Query("SELECT new com.esataydin.order.repository.OrderRepository$OrderHeader(o.id, o.user.id, o.createdAt) " +
+           "FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHeader> findHeadersByUserIdBefore(@Param("userId") Long userId,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Limit limit);
+    
+    record OrderHeader(Long id, Long userId, LocalDateTime createdAt) {
+    }
 }
@@ -0,0 +1,46 @@
+package com.esataydin.order.service;
+
+import com.esataydin.order.dto.OrderItemResponse;
+import com.esataydin.order.dto.OrderResponse;
+import com.esataydin.product.dto.ProductResponse;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Builds order responses and their totals from item lines
+@Component
+public class OrderMapper {
+    
+    public OrderResponse toResponse(Long id, Long userId, LocalDateTime createdAt,
+                                    List<OrderItemResponse> itemResponses) {
+        BigDecimal totalAmount = itemResponses.stream()
+                .map(OrderItemResponse::totalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        
+        Integer totalItems = itemResponses.stream()
+                .mapToInt(OrderItemResponse::quantity)
+                .sum();
+        
+        return new OrderResponse(
+                id,
+                userId,
+                createdAt,
+                itemResponses,
+                totalAmount,
+                totalItems
+        );
+    }
+    
+    public OrderItemResponse toItemResponse(ProductResponse product, Integer quantity) {
+        return new OrderItemResponse(
+                product.id(),
+                product.name(),
+                product.price(),
+                product.category(),
+                quantity,
+                product.price().multiply(BigDecimal.valueOf(quantity))
+        );
+    }
+}
@@ -1,34 +1,54 @@
 package com.esataydin.order.service;
 
-import com.esataydin.cart.entity.CartItem;
 import com.esataydin.cart.repository.CartItemRepository;
+import com.esataydin.cart.service.WriteBehindCartStore;
 import com.esataydin.order.dto.OrderCreateRequest;
 import com.esataydin.order.dto.OrderItemResponse;
+import com.esataydin.order.dto.OrderPageResponse;
 import com.esataydin.order.dto.OrderResponse;
 import com.esataydin.order.entity.Order;
 import com.esataydin.order.entity.OrderItem;
 import com.esataydin.order.exception.OrderException;
+import com.esataydin.order.repository.OrderItemRepository;
 import com.esataydin.order.repository.OrderRepository;
-import com.esataydin.product.entity.Product;
+import com.esataydin.product.dto.ProductResponse;
 import com.esataydin.product.exception.ProductException;
 import com.esataydin.product.repository.ProductRepository;
-import com.esataydin.user.entity.User;
+import com.esataydin.product.service.ProductService;
+import com.esataydin.product.service.StockReservation;
 import com.esataydin.user.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
     
+    private static final String CURSOR_SEPARATOR = "|";
+    
     @Autowired
     private OrderRepository orderRepository;
     
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    
+    @Autowired
+    private ProductService productService;
+    
     @Autowired
     private ProductRepository productRepository;
     
@@ -38,136 +58,161 @@ public class OrderService {
     @Autowired
     private CartItemRepository cartItemRepository;
     
-    public OrderResponse createOrder(String userEmail, OrderCreateRequest request) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new OrderException("User not found"));
-        
-        // Create new order
-        Order order = new Order(user);
-        order = orderRepository.save(order);
-        
-        // Process order items
+    @Autowired
+    private OrderMapper orderMapper;
+    
+    // Only present when cart.write-behind.enabled is set
+    @Autowired(required = false)
+    private WriteBehindCartStore cartStore;
+    
+    @Value("${order.page.default-size:10}")
+    private int defaultPageSize;
+    
+    @Value("${order.page.max-size:50}")
+    private int maxPageSize;
+    
+    public OrderResponse createOrder(Long userId, OrderCreateRequest request) {
+        // Merge duplicate products, ordered by product id
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
         for (OrderCreateRequest.OrderItemRequest itemRequest : request.getItems()) {
-            // Find product
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ProductException("Product not found with ID: " + itemRequest.getProductId()));
-            
-            // Check stock
-            if (product.getStock() < itemRequest.getQuantity()) {
-                throw new OrderException("Insufficient stock for product: " + product.getName() + 
-                                       ". Available: " + product.getStock() + ", Requested: " + itemRequest.getQuantity());
-            }
-            
-            // Create order item
-            OrderItem orderItem = new OrderItem(order, product, itemRequest.getQuantity());
-            order.addOrderItem(orderItem);
-            
-            // Update product stock
-            product.setStock(product.getStock() - itemRequest.getQuantity());
-            productRepository.save(product);
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
         }
         
-        // Save order with items
-        order = orderRepository.save(order);
+        OrderResponse order = placeOrder(userId, quantities, "Requested");
         
         // Clear user's cart after successful order
-        cartItemRepository.deleteByUserId(user.getId());
+        clearCart(userId);
         
-        return convertToOrderResponse(order);
+        return order;
     }
     
-    public OrderResponse createOrderFromCart(String userEmail) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new OrderException("User not found"));
-        
-        // Get user's cart items
-        List<CartItem> cartItems = cartItemRepository.findByUserId(user.getId());
-        
-        if (cartItems.isEmpty()) {
-            throw new OrderException("Cart is empty. Cannot create order.");
+    public OrderResponse createOrderFromCart(Long userId) {
+        // Merge cart lines by product id; plain columns, so no cart entities are loaded
+        List<CartItemRepository.CartRow> lines = cartStore != null
+                ? cartStore.getLines(userId)
+                : cartItemRepository.findRowsByUserId(userId);
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (CartItemRepository.CartRow line : lines) {
+            quantities.merge(line.productId(), line.quantity(), Integer::sum);
         }
         
-        // Create new order
-        Order order = new Order(user);
-        order = orderRepository.save(order);
-        
-        // Process cart items into order items
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            
-            // Check stock
-            if (product.getStock() < cartItem.getQuantity()) {
-                throw new OrderException("Insufficient stock for product: " + product.getName() + 
-                                       ". Available: " + product.getStock() + ", In cart: " + cartItem.getQuantity());
-            }
-            
-            // Create order item
-            OrderItem orderItem = new OrderItem(order, product, cartItem.getQuantity());
-            order.addOrderItem(orderItem);
-            
-            // Update product stock
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productRepository.save(product);
+        if (quantities.isEmpty()) {
+            throw new OrderException("Cart is empty. Cannot create order.");
         }
         
-        // Save order with items
-        order = orderRepository.save(order);
+        OrderResponse order = placeOrder(userId, quantities, "In cart");
         
         // Clear user's cart after successful order
-        cartItemRepository.deleteByUserId(user.getId());
+        clearCart(userId);
         
-        return convertToOrderResponse(order);
+        return order;
     }
     
-    public List<OrderResponse> getUserOrders(String userEmail) {
-        // Find user
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new OrderException("User not found"));
+    @Transactional(readOnly = true)
+    public OrderPageResponse getUserOrders(Long userId, String after, Integer limit) {
+        // Get one page of the user's orders, plus one row to detect a further page
+        int pageSize = resolvePageSize(limit);
+        List<OrderRepository.OrderHeader> page;
+        if (after == null || after.isBlank()) {
+            page = orderRepository.findHeadersByUserId(userId, Limit.of(pageSize + 1));
+        } else {
+            OrderCursor cursor = decodeCursor(after);
+            page = orderRepository.findHeadersByUserIdBefore(userId, cursor.createdAt(), cursor.id(), Limit.of(pageSize + 1));
+        }
         
-        // Get user's orders
-        List<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+        if (page.isEmpty()) {
+            return new OrderPageResponse(List.of(), null, false);
+        }
         
-        return orders.stream()
-                .map(this::convertToOrderResponse)
+        // Fetch the items of the whole page in one projection query
+        List<Long> orderIds = page.stream().map(OrderRepository.OrderHeader::id).collect(Collectors.toList());
+        Map<Long, List<OrderItemResponse>> itemsByOrder = orderItemRepository.findLinesByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItemRepository.OrderLine::orderId,
+                        Collectors.mapping(OrderItemRepository.OrderLine::toResponse, Collectors.toList())));
+        List<OrderResponse> orders = page.stream()
+                .map(header -> orderMapper.toResponse(header.id(), header.userId(), header.createdAt(),
+                        itemsByOrder.getOrDefault(header.id(), List.of())))
                 .collect(Collectors.toList());
+        
+        OrderRepository.OrderHeader last = page.get(page.size() - 1);
+        String nextCursor = hasMore ? encodeCursor(last.createdAt(), last.id()) : null;
+        return new OrderPageResponse(orders, nextCursor, hasMore);
     }
     
-    private OrderResponse convertToOrderResponse(Order order) {
-        List<OrderItemResponse> itemResponses = order.getOrderItems().stream()
-                .map(this::convertToOrderItemResponse)
-                .collect(Collectors.toList());
-        
-        BigDecimal totalAmount = itemResponses.stream()
-                .map(OrderItemResponse::totalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new OrderException("Limit must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+    
+    private String encodeCursor(LocalDateTime createdAt, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + CURSOR_SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private OrderCursor decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new OrderException("Invalid cursor: " + cursor);
+            }
+            return new OrderCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new OrderException("Invalid cursor: " + cursor);
+        }
+    }
+    
+    private record OrderCursor(LocalDateTime createdAt, Long id) {
+    }
+    
+    // Reserves the stock with guarded UPDATEs (ascending product id order, so concurrent
+    // orders cannot deadlock) and builds the order from the products read back afterwards.
+    // Order items reference the products without loading them.
+    private OrderResponse placeOrder(Long userId, SortedMap<Long, Integer> quantities, String quantityLabel) {
+        StockReservation reservation = productService.reserveStock(quantities);
+        for (Long productId : quantities.keySet()) {
+            if (!reservation.products().containsKey(productId)) {
+                throw new ProductException("Product not found with ID: " + productId);
+            }
+        }
         
-        Integer totalItems = itemResponses.stream()
-                .mapToInt(OrderItemResponse::quantity)
-                .sum();
+        // Check stock; a rejected product still shows its unchanged stock
+        if (!reservation.isComplete()) {
+            ProductResponse product = reservation.products().get(reservation.rejectedIds().get(0));
+            throw new OrderException("Insufficient stock for product: " + product.name() + 
+                                   ". Available: " + product.stock() + ", " + quantityLabel + ": " + quantities.get(product.id()));
+        }
         
-        return new OrderResponse(
-                order.getId(),
-                order.getUser().getId(),
-                order.getCreatedAt(),
-                itemResponses,
-                totalAmount,
-                totalItems
-        );
+        // Reference the user and products without loading them
+        Order order = new Order(userRepository.getReferenceById(userId));
+        List<OrderItemResponse> itemResponses = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            order.addOrderItem(new OrderItem(order, productRepository.getReferenceById(productId), quantity));
+            itemResponses.add(orderMapper.toItemResponse(reservation.products().get(productId), quantity));
+        });
+        
+        // Save order with items; flush so the batched inserts run now and
+        // @CreationTimestamp has filled createdAt before the response is built
+        orderRepository.saveAndFlush(order);
+        return orderMapper.toResponse(order.getId(), userId, order.getCreatedAt(), itemResponses);
     }
     
-    private OrderItemResponse convertToOrderItemResponse(OrderItem orderItem) {
-        Product product = orderItem.getProduct();
-        BigDecimal totalPrice = product.getPrice().multiply(BigDecimal.valueOf(orderItem.getQuantity()));
-        
-        return new OrderItemResponse(
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                product.getCategory(),
-                orderItem.getQuantity(),
-                totalPrice
-        );
+    // An in-memory cart is emptied once the order has committed and written behind like any other change
+    private void clearCart(Long userId) {
+        if (cartStore != null) {
+            cartStore.clearAfterCommit(userId);
+        } else {
+            cartItemRepository.deleteByUserId(userId);
+        }
     }
 }
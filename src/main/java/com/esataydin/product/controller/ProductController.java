@@ -1,8 +1,23 @@
 package com.esataydin.product.controller;
 
+import com.esataydin.product.dto.CategoryResponse;
+import com.esataydin.product.dto.ProductBatchRequest;
+import com.esataydin.product.dto.ProductBatchResponse;
+import com.esataydin.product.dto.ProductCacheStatsResponse;
 import com.esataydin.product.dto.ProductCreateRequest;
+import com.esataydin.product.dto.ProductImportResponse;
+import com.esataydin.product.dto.ProductPageResponse;
 import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.dto.ProductSearchResponse;
+import com.esataydin.product.dto.ProductSuggestionResponse;
 import com.esataydin.product.dto.ProductUpdateRequest;
+import com.esataydin.product.exception.ProductException;
+import com.esataydin.product.service.CatalogVersion;
+import com.esataydin.product.service.ProductExportService;
+import com.esataydin.product.service.ProductFileFormat;
+import com.esataydin.product.service.ProductImportService;
+import com.esataydin.product.service.ProductJsonCache;
+import com.esataydin.product.service.ProductQuery;
 import com.esataydin.product.service.ProductService;
 import com.esataydin.exception.ErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,14 +29,28 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
@@ -32,29 +61,169 @@ public class ProductController {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private ProductImportService productImportService;
+    
+    @Autowired
+    private ProductExportService productExportService;
+    
+    @Autowired
+    private ProductJsonCache productJsonCache;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Value("${product.http.max-age:60s}")
+    private Duration maxAge;
+    
     // Public endpoints (no authentication required)
     
     @GetMapping
-    @Operation(summary = "Get all products", description = "Retrieve all products or filter by category")
+    @Operation(summary = "Get all products",
+            description = "Retrieve products page by page, optionally filtered by category, price range, "
+                    + "stock and name prefix and sorted by id, price, name or stock. "
+                    + "Pass the returned nextCursor as 'after' with the same filters and sort to fetch the next page.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Products retrieved successfully",
-                    content = @Content(mediaType = "application/json", 
-                    array = @ArraySchema(schema = @Schema(implementation = ProductResponse.class)))),
-            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductPageResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified - the If-None-Match ETag is still current"),
+            @ApiResponse(responseCode = "400", description = "Bad request - invalid filter, sort, cursor or limit",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<List<ProductResponse>> getAllProducts(
+    public ResponseEntity<byte[]> getAllProducts(
             @Parameter(description = "Filter products by category", example = "Electronics")
-            @RequestParam(value = "category", required = false) String category) {
-        List<ProductResponse> products;
-        if (category != null && !category.trim().isEmpty()) {
-            products = productService.getProductsByCategory(category.trim());
-        } else {
-            products = productService.getAllProducts();
-        }
-        return ResponseEntity.ok(products);
+            @RequestParam(value = "category", required = false) String category,
+            @Parameter(description = "Minimum price, inclusive", example = "10.00")
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price, inclusive", example = "99.99")
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @Parameter(description = "Only return products that are in stock", example = "true")
+            @RequestParam(value = "inStock", defaultValue = "false") boolean inStock,
+            @Parameter(description = "Only return products whose name starts with this text (case-sensitive)", example = "Wireless")
+            @RequestParam(value = "namePrefix", required = false) String namePrefix,
+            @Parameter(description = "Sort field: id, price, name or stock", example = "price")
+            @RequestParam(value = "sort", required = false) String sort,
+            @Parameter(description = "Sort order: asc or desc", example = "asc")
+            @RequestParam(value = "order", required = false) String order,
+            @Parameter(description = "Opaque cursor returned as nextCursor by the previous page")
+            @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Maximum number of products to return (capped by the server)", example = "20")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(hidden = true) ServletWebRequest webRequest) {
+        ProductQuery query = new ProductQuery(category, minPrice, maxPrice, inStock, namePrefix,
+                ProductQuery.SortField.parse(sort), ProductQuery.parseDescending(order));
+        return conditionalJson(webRequest, catalogVersion.etag(),
+                () -> productJsonCache.get("list|" + query + "|" + after + "|" + limit,
+                        () -> productService.getProducts(query, after, limit)));
+    }
+    
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get products by ID list",
+            description = "Resolve several products in one call. Products come back in the requested order; "
+                    + "ids that do not exist are listed in missingIds.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductBatchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request - empty, invalid or too many ids",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ProductBatchResponse> getProductsByIds(
+            @Parameter(description = "Comma-separated product IDs", required = true, example = "1,2,3")
+            @RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductBatch(ids));
+    }
+    
+    @PostMapping("/batch")
+    @Operation(summary = "Get products by ID list (POST)",
+            description = "Same as GET /api/products?ids=... for id lists too long for a query string")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductBatchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request - empty, invalid or too many ids",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ProductBatchResponse> getProductsByIds(@Valid @RequestBody ProductBatchRequest request) {
+        return ResponseEntity.ok(productService.getProductBatch(request.getIds()));
+    }
+    
+    @GetMapping("/{id}")
+    @Operation(summary = "Get product by ID", description = "Retrieve a single product")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Product retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified - the If-None-Match ETag is still current"),
+            @ApiResponse(responseCode = "400", description = "Product not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<byte[]> getProductById(
+            @Parameter(description = "Product ID", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(hidden = true) ServletWebRequest webRequest) {
+        return conditionalJson(webRequest, catalogVersion.productEtag(id),
+                () -> productJsonCache.get("product|" + id, () -> productService.getProductById(id)));
+    }
+    
+    @GetMapping("/categories")
+    @Operation(summary = "Get all categories",
+            description = "List categories that have products, with their product and in-stock counts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Categories retrieved successfully",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CategoryResponse.class)))),
+            @ApiResponse(responseCode = "304", description = "Not modified - the If-None-Match ETag is still current"),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<byte[]> getAllCategories(@Parameter(hidden = true) ServletWebRequest webRequest) {
+        return conditionalJson(webRequest, catalogVersion.etag(),
+                () -> productJsonCache.get("categories", productService::getAllCategories));
+    }
+    
+    @GetMapping("/search")
+    @Operation(summary = "Search products",
+            description = "Full-text search over product name and category with prefix and typo-tolerant "
+                    + "matching. Every query word must match; results are ranked by relevance.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search results retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductSearchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request - blank query, negative page or invalid limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ProductSearchResponse> searchProducts(
+            @Parameter(description = "Search text", required = true, example = "wireless headphones")
+            @RequestParam("q") String query,
+            @Parameter(description = "Zero-based result page", example = "0")
+            @RequestParam(value = "page", required = false) Integer page,
+            @Parameter(description = "Maximum number of products to return (capped by the server)", example = "20")
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(query, page, limit));
+    }
+    
+    @GetMapping("/suggest")
+    @Operation(summary = "Autocomplete product names and categories",
+            description = "Suggestions whose name or category has a word starting with the prefix, "
+                    + "ranked by units sold. Returns an empty list for a blank prefix.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ProductSuggestionResponse.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad request - invalid limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<List<ProductSuggestionResponse>> suggestProducts(
+            @Parameter(description = "Text typed so far", required = true, example = "wire")
+            @RequestParam("prefix") String prefix,
+            @Parameter(description = "Maximum number of suggestions (capped by the server)", example = "10")
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
     }
     
     // Admin endpoints (require ADMIN role)
@@ -78,6 +247,68 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(product);
     }
     
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Bulk import products",
+            description = "Stream products as NDJSON (one ProductCreateRequest per line) or CSV with a "
+                    + "name,price,stock,category header. Rows are imported in chunks; invalid or duplicate "
+                    + "rows are skipped and reported per line (Admin only)",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see the per-row error report",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductImportResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Unreadable stream or missing CSV header",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Access denied - Admin role required",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ProductImportResponse> importProducts(HttpServletRequest request) throws IOException {
+        ProductFileFormat format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ProductFileFormat.NDJSON
+                : ProductFileFormat.CSV;
+        ProductImportResponse result = productImportService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export all products",
+            description = "Stream the whole catalog as NDJSON (one ProductResponse per line) or as CSV with an "
+                    + "id,name,price,stock,category header. Rows are written as they are read (Admin only)",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export stream",
+                    content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Unsupported export format",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Access denied - Admin role required",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @Parameter(description = "Export format: ndjson or csv", example = "ndjson")
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ProductFileFormat exportFormat;
+        try {
+            exportFormat = ProductFileFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ProductException("Unsupported export format: " + format);
+        }
+        MediaType mediaType = exportFormat == ProductFileFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        StreamingResponseBody body = output -> productExportService.exportProducts(output, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + exportFormat.name().toLowerCase(Locale.ROOT))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Update a product", description = "Update an existing product (Admin only)",
@@ -119,4 +350,32 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.ok("Product deleted successfully");
     }
+    
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get product cache statistics", description = "Size, hit, miss and eviction counts of the product cache (Admin only)",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cache statistics retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductCacheStatsResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Access denied - Admin role required",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<ProductCacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+    
+    // If-None-Match is answered from the catalog version alone, so polling an
+    // unchanged catalog costs no cache lookup, query or serialization
+    private ResponseEntity<byte[]> conditionalJson(ServletWebRequest webRequest, String etag, Supplier<byte[]> body) {
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+        if (webRequest.checkNotModified(etag)) {
+            webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.get());
+    }
 }
@@ -0,0 +1,9 @@
+package com.esataydin.product.dto;
+
+public record CategoryResponse(
+    Integer id,
+    String name,
+    int productCount,
+    int inStockCount
+) {
+}
@@ -0,0 +1,18 @@
+package com.esataydin.product.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchRequest {
+    
+    @NotEmpty(message = "Product ids cannot be empty")
+    private List<@NotNull(message = "Product id cannot be null") Long> ids;
+}
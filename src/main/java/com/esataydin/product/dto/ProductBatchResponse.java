@@ -0,0 +1,9 @@
+package com.esataydin.product.dto;
+
+import java.util.List;
+
+public record ProductBatchResponse(
+    List<ProductResponse> items,
+    List<Long> missingIds
+) {
+}
@@ -0,0 +1,10 @@
+package com.esataydin.product.dto;
+
+public record ProductCacheStatsResponse(
+    long size,
+    long hitCount,
+    long missCount,
+    long evictionCount,
+    double hitRate
+) {
+}
@@ -0,0 +1,7 @@
+package com.esataydin.product.dto;
+
+public record ProductImportError(
+    long line,
+    String message
+) {
+}
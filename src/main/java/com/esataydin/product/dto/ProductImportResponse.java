@@ -0,0 +1,11 @@
+package com.esataydin.product.dto;
+
+import java.util.List;
+
+public record ProductImportResponse(
+    long processedRows,
+    long importedRows,
+    long failedRows,
+    List<ProductImportError> errors
+) {
+}
@@ -0,0 +1,10 @@
+package com.esataydin.product.dto;
+
+import java.util.List;
+
+public record ProductPageResponse(
+    List<ProductResponse> items,
+    String nextCursor,
+    boolean hasMore
+) {
+}
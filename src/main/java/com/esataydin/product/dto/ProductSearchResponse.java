@@ -0,0 +1,11 @@
+package com.esataydin.product.dto;
+
+import java.util.List;
+
+public record ProductSearchResponse(
+    List<ProductResponse> items,
+    long totalHits,
+    int page,
+    boolean hasMore
+) {
+}
@@ -0,0 +1,12 @@
+package com.esataydin.product.dto;
+
+public record ProductSuggestionResponse(
+    String text,
+    Type type,
+    Long productId
+) {
+    
+    public enum Type {
+        PRODUCT, CATEGORY
+    }
+}
@@ -0,0 +1,64 @@
+package com.esataydin.product.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.Locale;
+
+@Entity
+@Table(name = "categories")
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class Category {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+    @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = 50)
+    @EqualsAndHashCode.Include // Only include ID in equals/hashCode
+    private Integer id;
+    
+    @NotBlank(message = "Category name is required")
+    @Size(max = 100, message = "Category cannot exceed 100 characters")
+    @Column(nullable = false, unique = true, length = 100)
+    private String name;
+    
+    // Trimmed, lower-cased name; its unique constraint is what keeps "Books" and "books"
+    // from becoming two categories. Nullable in the DDL only so ddl-auto can add it to
+    // an existing table; CategoryService fills it in for older rows at startup.
+    @Column(name = "name_key", unique = true, length = 100)
+    private String nameKey;
+    
+    // Counters maintained by CategoryService on every product write,
+    // so listing categories never has to scan the products table
+    @Column(name = "product_count", nullable = false)
+    @Builder.Default
+    private Integer productCount = 0;
+    
+    @Column(name = "in_stock_count", nullable = false)
+    @Builder.Default
+    private Integer inStockCount = 0;
+    
+    // Custom constructor for business logic
+    public Category(String name) {
+        this.name = name;
+        this.nameKey = key(name);
+        this.productCount = 0;
+        this.inStockCount = 0;
+    }
+    
+    public static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    @PrePersist
+    @PreUpdate
+    void fillNameKey() {
+        nameKey = key(name);
+    }
+}
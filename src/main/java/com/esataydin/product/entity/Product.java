@@ -1,16 +1,32 @@
 package com.esataydin.product.entity;
 
+import com.esataydin.product.service.ProductChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "products")
+// Listing indexes: the id, price and name sorts have an (optional category, sort
+// column, id) index, so those filter and sort combinations are read in index order
+// and stop after one page. Range filters on the sort column narrow the scan itself;
+// the others are checked on the rows as they are walked, never sorted afterwards.
+// Stock is left unindexed: it changes on every order, and an index on it would
+// turn those updates into non-HOT ones that rewrite every index of the row.
+// Sorting by stock sorts the matching rows instead.
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_id", columnList = "category_id, id"),
+        @Index(name = "idx_products_category_price", columnList = "category_id, price, id"),
+        @Index(name = "idx_products_category_name", columnList = "category_id, name, id"),
+        @Index(name = "idx_products_price", columnList = "price, id"),
+        @Index(name = "idx_products_name", columnList = "name, id")
+})
+@EntityListeners(ProductChangeListener.class)
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +36,8 @@ import java.math.BigDecimal;
 public class Product {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     @EqualsAndHashCode.Include // Only include ID in equals/hashCode
     private Long id;
     
@@ -39,13 +56,21 @@ public class Product {
     @Builder.Default
     private Integer stock = 0;
     
-    @NotBlank(message = "Category is required")
-    @Size(max = 100, message = "Category cannot exceed 100 characters")
-    @Column(nullable = false, length = 100)
-    private String category;
+    // Bumped on every write, including the stock UPDATEs of orders, so read models can
+    // tell an older change event from a newer one. Null until the product is persisted.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
+    @NotNull(message = "Category is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    @ToString.Exclude // Exclude to prevent lazy loading in toString
+    private Category category;
     
     // Custom constructor for business logic
-    public Product(String name, BigDecimal price, Integer stock, String category) {
+    public Product(String name, BigDecimal price, Integer stock, Category category) {
         this.name = name;
         this.price = price;
         this.stock = stock != null ? stock : 0;
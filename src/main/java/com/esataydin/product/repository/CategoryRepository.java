@@ -0,0 +1,32 @@
+package com.esataydin.product.repository;
+
+import com.esataydin.product.entity.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<Category, Integer>, CategoryUpsertRepository {
+    
+    Optional<Category> findByNameKey(String nameKey);
+    
+    List<Category> findByProductCountGreaterThanOrderByNameAsc(int productCount);
+    
+    // Applied as a relative update so concurrent writers never lose an increment
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Category c SET c.productCount = c.productCount + :products, "
+            + "c.inStockCount = c.inStockCount + :inStock WHERE c.id = :id")
+    void adjustCounts(@Param("id") Integer id, @Param("products") int products, @Param("inStock") int inStock);
+    
+    // Backfills the key of rows created before the name_key column existed
+    @Transactional
+    @Modifying
+    @Query("UPDATE Category c SET c.nameKey = LOWER(TRIM(c.name)) WHERE c.nameKey IS NULL")
+    int fillMissingNameKeys();
+}
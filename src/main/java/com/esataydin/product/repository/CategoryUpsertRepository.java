@@ -0,0 +1,8 @@
+package com.esataydin.product.repository;
+
+public interface CategoryUpsertRepository {
+    
+    // Inserts the category unless one with the same name key already exists, including one
+    // committed concurrently by another transaction. The caller re-reads it afterwards.
+    void insertIfAbsent(String name, String nameKey);
+}
@@ -0,0 +1,60 @@
+package com.esataydin.product.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Native insert relying on the unique name_key column, so two requests introducing the
+// same category, in any letter case, cannot both insert it. Ids are taken straight from categories_seq,
+// which is safe with the pooled-lo optimizer as for cart_items.
+class CategoryUpsertRepositoryImpl implements CategoryUpsertRepository {
+    
+    private static final String POSTGRES_INSERT =
+            "INSERT INTO categories (id, name, name_key, product_count, in_stock_count) " +
+            "VALUES (nextval('categories_seq'), ?, ?, 0, 0) ON CONFLICT DO NOTHING";
+    
+    // H2 has no ON CONFLICT; a MERGE without a WHEN MATCHED branch does the same for
+    // committed rows, and a concurrent insert is caught as a unique violation below
+    private static final String H2_INSERT =
+            "MERGE INTO categories t USING (VALUES (CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(100)))) " +
+            "s (name, name_key) ON t.name_key = s.name_key " +
+            "WHEN NOT MATCHED THEN INSERT (id, name, name_key, product_count, in_stock_count) " +
+            "VALUES (NEXT VALUE FOR categories_seq, s.name, s.name_key, 0, 0)";
+    
+    private static final String UNIQUE_VIOLATION = "23505";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private volatile Boolean h2;
+    
+    @Override
+    public void insertIfAbsent(String name, String nameKey) {
+        boolean h2 = isH2();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(h2 ? H2_INSERT : POSTGRES_INSERT)) {
+                statement.setString(1, name);
+                statement.setString(2, nameKey);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                // Unlike Postgres, H2 keeps the transaction usable after a failed statement
+                if (!h2 || !UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+            }
+        });
+    }
+    
+    private boolean isH2() {
+        if (h2 == null) {
+            h2 = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof H2Dialect;
+        }
+        return h2;
+    }
+}
@@ -0,0 +1,14 @@
+package com.esataydin.product.repository;
+
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.entity.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Specification queries that select into ProductResponse instead of loading entities
+public interface ProductProjectionRepository {
+    
+    List<ProductResponse> findResponses(Specification<Product> specification, Sort sort, int limit);
+}
@@ -1,30 +1,64 @@
 package com.esataydin.product.repository;
 
+import com.esataydin.product.dto.ProductResponse;
 import com.esataydin.product.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductProjectionRepository, ProductStockRepository {
     
-    List<Product> findByCategory(String category);
+    // Read paths select straight into the response record: no managed entities,
+    // snapshots or category proxies, and the category name comes from the join
+    @Query("SELECT new com.esataydin.product.dto.ProductResponse(p.id, p.name, p.price, p.stock, c.name) " +
+           "FROM Product p JOIN p.category c WHERE p.id = :id")
+    Optional<ProductResponse> findResponseById(@Param("id") Long id);
     
-    List<Product> findByCategoryIgnoreCase(String category);
+    @Query("SELECT new com.esataydin.product.dto.ProductResponse(p.id, p.name, p.price, p.stock, c.name) " +
+           "FROM Product p JOIN p.category c WHERE p.id IN :ids")
+    List<ProductResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
     
-    @Query("SELECT p FROM Product p WHERE p.stock > 0")
-    List<Product> findAllInStock();
+    List<Product> findByCategoryId(Integer categoryId);
     
-    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.stock > 0")
-    List<Product> findByCategoryAndInStock(@Param("category") String category);
-    
-    @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
-    List<String> findAllCategories();
+    // Keyset pagination: seek past the last seen id instead of using OFFSET
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
     
     List<Product> findByNameContainingIgnoreCase(String name);
     
     boolean existsByName(String name);
+    
+    @Query("SELECT p.name FROM Product p WHERE p.name IN :names")
+    Set<String> findExistingNames(@Param("names") Collection<String> names);
+    
+    // Forward-only cursor for exports: rows arrive in batches of the fetch size and
+    // read-only entities keep no dirty-checking snapshots in the persistence context
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllOrderById();
+    
+    // Product columns after a stock update, read in one query without loading entities
+    @Query("SELECT new com.esataydin.product.repository.ProductRepository$ProductState(" +
+           "p.id, p.name, p.price, p.stock, p.category.id, p.version) FROM Product p WHERE p.id IN :ids")
+    List<ProductState> findStatesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    record ProductState(Long id, String name, BigDecimal price, Integer stock, Integer categoryId, Long version) {
+    }
 }
@@ -0,0 +1,67 @@
+package com.esataydin.product.repository;
+
+import com.esataydin.product.entity.Product;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+// Building blocks for the product listing. Each filter maps onto one of the
+// composite indexes declared on Product, see the comment there.
+public final class ProductSpecifications {
+    
+    private ProductSpecifications() {
+    }
+    
+    public static Specification<Product> inCategory(Integer categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+    
+    public static Specification<Product> priceAtLeast(BigDecimal minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+    
+    public static Specification<Product> priceAtMost(BigDecimal maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+    
+    // Not index-backed (stock is deliberately unindexed, see Product): checked on each
+    // row the chosen index walk visits
+    public static Specification<Product> inStock() {
+        return (root, query, cb) -> cb.greaterThan(root.get("stock"), 0);
+    }
+    
+    // Case-sensitive LIKE 'prefix%'. Postgres only turns it into an index range under the C
+    // collation or with the text_pattern_ops index from schema-postgresql.sql; a hand-written
+    // >= / < range is not equivalent under linguistic collations, which ignore punctuation.
+    public static Specification<Product> nameStartsWith(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("name"), pattern, '\\');
+    }
+    
+    // Keyset seek past the last row of the previous page: (key, id) > (lastKey, lastId),
+    // or < when descending. Written out because row value comparisons are not portable;
+    // the redundant key >= lastKey gives the planner a range on the sort key index.
+    public static <Y extends Comparable<? super Y>> Specification<Product> after(
+            String attribute, Y lastKey, Long lastId, boolean descending) {
+        return (root, query, cb) -> {
+            Path<Y> key = root.get(attribute);
+            Path<Long> id = root.get("id");
+            Predicate range = descending ? cb.lessThanOrEqualTo(key, lastKey) : cb.greaterThanOrEqualTo(key, lastKey);
+            return cb.and(range, cb.or(
+                    beyond(cb, key, lastKey, descending),
+                    cb.and(cb.equal(key, lastKey), beyond(cb, id, lastId, descending))));
+        };
+    }
+    
+    public static Specification<Product> afterId(Long lastId, boolean descending) {
+        return (root, query, cb) -> beyond(cb, root.get("id"), lastId, descending);
+    }
+    
+    private static <Y extends Comparable<? super Y>> Predicate beyond(
+            CriteriaBuilder cb, Path<Y> path, Y value, boolean descending) {
+        return descending ? cb.lessThan(path, value) : cb.greaterThan(path, value);
+    }
+}
@@ -0,0 +1,14 @@
+package com.esataydin.product.repository;
+
+import java.util.List;
+import java.util.SortedMap;
+
+// Guarded stock decrements for orders, without loading or dirty-checking entities
+public interface ProductStockRepository {
+    
+    // Runs UPDATE ... SET stock = stock - quantity WHERE id = ? AND stock >= quantity for
+    // every entry as one JDBC batch. Entries run in ascending product id order, so concurrent
+    // orders over overlapping products take their row locks in the same order and cannot
+    // deadlock. Returns the ids whose row was not updated: unknown or short of stock.
+    List<Long> decrementStock(SortedMap<Long, Integer> quantities);
+}
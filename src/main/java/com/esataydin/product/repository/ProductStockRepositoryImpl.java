@@ -0,0 +1,44 @@
+package com.esataydin.product.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+    
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET stock = stock - ?, version = version + 1 WHERE id = ? AND stock >= ?";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Long> decrementStock(SortedMap<Long, Integer> quantities) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> ids = new ArrayList<>(quantities.keySet());
+            try (PreparedStatement statement = connection.prepareStatement(DECREMENT_STOCK)) {
+                for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                    statement.setInt(1, entry.getValue());
+                    statement.setLong(2, entry.getKey());
+                    statement.setInt(3, entry.getValue());
+                    statement.addBatch();
+                }
+                // Update counts are exact for UPDATE batches; only inserts are rewritten by the driver
+                int[] counts = statement.executeBatch();
+                List<Long> rejected = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        rejected.add(ids.get(i));
+                    }
+                }
+                return rejected;
+            }
+        });
+    }
+}
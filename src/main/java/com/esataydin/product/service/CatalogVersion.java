@@ -0,0 +1,44 @@
+package com.esataydin.product.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic counter bumped after every committed product change, including bulk
+// imports and stock changes from orders. Anything derived from the catalog can
+// be cached under the version it was read at. Each product also remembers the
+// version of its own last change, for per-product validators.
+// The counter is per instance and never sees writes made through other
+// instances, so the ETags assume a single instance or sticky routing.
+@Component
+public class CatalogVersion {
+    
+    // Distinguishes ETags across restarts, when the counter starts over
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    
+    private final AtomicLong version = new AtomicLong();
+    
+    private final Map<Long, Long> productVersions = new ConcurrentHashMap<>();
+    
+    public long current() {
+        return version.get();
+    }
+    
+    // Strong ETag for anything derived from the whole catalog
+    public String etag() {
+        return "\"" + epoch + "-" + current() + "\"";
+    }
+    
+    // Strong ETag for a single product; only changes when that product does
+    public String productEtag(Long id) {
+        return "\"" + epoch + "-p" + productVersions.getOrDefault(id, 0L) + "\"";
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productVersions.put(event.id(), version.incrementAndGet());
+    }
+}
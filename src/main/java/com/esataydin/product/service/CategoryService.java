@@ -0,0 +1,165 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.CategoryResponse;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.repository.CategoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class CategoryService {
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    // Category names never change, so id <-> name lookups are served from memory.
+    // Categories created by another instance are picked up on the first miss.
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void loadRegistry() {
+        categoryRepository.fillMissingNameKeys();
+        categoryRepository.findAll().forEach(this::register);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getCategories() {
+        return categoryRepository.findByProductCountGreaterThanOrderByNameAsc(0).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Category> findByName(String name) {
+        Integer id = idsByName.get(key(name));
+        if (id != null) {
+            return Optional.of(categoryRepository.getReferenceById(id));
+        }
+        Optional<Category> category = categoryRepository.findByNameKey(key(name));
+        category.ifPresent(this::registerAfterCommit);
+        return category;
+    }
+    
+    // Names are matched case-insensitively; the first spelling seen becomes the category name.
+    // A miss inserts through an upsert and re-reads, so a concurrent insert of the same name wins quietly.
+    public Category resolve(String name) {
+        return findByName(name).orElseGet(() -> {
+            categoryRepository.insertIfAbsent(name.trim(), key(name));
+            Category category = categoryRepository.findByNameKey(key(name))
+                    .orElseThrow(() -> new IllegalStateException("Category vanished after insert: " + name));
+            registerAfterCommit(category);
+            return category;
+        });
+    }
+    
+    // Works on lazy proxies without loading them
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public String getCategoryName(Category category) {
+        if (category == null) {
+            return null;
+        }
+        if (Hibernate.isInitialized(category)) {
+            return category.getName();
+        }
+        return getCategoryName(category.getId());
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public String getCategoryName(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        String name = namesById.get(id);
+        if (name != null) {
+            return name;
+        }
+        return categoryRepository.findById(id)
+                .map(category -> {
+                    register(category);
+                    return category.getName();
+                })
+                .orElse(null);
+    }
+    
+    // Counter maintenance, called by every write path that creates, deletes or restocks products
+    
+    public void productAdded(Category category, boolean inStock) {
+        adjustCounts(category, 1, inStock ? 1 : 0);
+    }
+    
+    public void productRemoved(Category category, boolean inStock) {
+        adjustCounts(category, -1, inStock ? -1 : 0);
+    }
+    
+    public void productChanged(Category before, boolean wasInStock, Category after, boolean inStock) {
+        if (before.getId().equals(after.getId())) {
+            stockChanged(after, wasInStock, inStock);
+        } else {
+            productRemoved(before, wasInStock);
+            productAdded(after, inStock);
+        }
+    }
+    
+    public void stockChanged(Category category, boolean wasInStock, boolean inStock) {
+        if (wasInStock != inStock) {
+            adjustCounts(category, 0, inStock ? 1 : -1);
+        }
+    }
+    
+    public void adjustCounts(Category category, int products, int inStock) {
+        adjustCounts(category.getId(), products, inStock);
+    }
+    
+    public void adjustCounts(Integer categoryId, int products, int inStock) {
+        if (products != 0 || inStock != 0) {
+            categoryRepository.adjustCounts(categoryId, products, inStock);
+        }
+    }
+    
+    // Only committed categories enter the registry, so a rolled back insert cannot leak an id
+    private void registerAfterCommit(Category category) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    register(category);
+                }
+            });
+        } else {
+            register(category);
+        }
+    }
+    
+    private void register(Category category) {
+        namesById.put(category.getId(), category.getName());
+        idsByName.putIfAbsent(key(category.getName()), category.getId());
+    }
+    
+    private String key(String name) {
+        return Category.key(name);
+    }
+    
+    private CategoryResponse convertToResponse(Category category) {
+        return new CategoryResponse(
+                category.getId(),
+                category.getName(),
+                category.getProductCount(),
+                category.getInStockCount()
+        );
+    }
+}
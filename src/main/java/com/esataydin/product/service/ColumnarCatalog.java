@@ -0,0 +1,325 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Struct-of-arrays copy of the catalog for browse queries. Rows are kept sorted by id
+// in primitive columns, so a filter is a scan over a few arrays and a sort keeps the
+// best rows of the page in a bounded heap of row numbers. Nothing is allocated per
+// scanned row, only the responses of the returned page.
+// Change events can arrive out of commit order, so each row keeps the product version
+// it was written at and older events are ignored. Deleted ids are remembered for a while
+// so a late save event cannot bring a product back; ids come from a sequence and are never reused.
+@Component
+@ConditionalOnProperty(name = "product.columnar-catalog.enabled", havingValue = "true")
+@Slf4j
+public class ColumnarCatalog {
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private int size;
+    
+    private long[] ids = new long[LOAD_BATCH_SIZE];
+    
+    private long[] priceCents = new long[LOAD_BATCH_SIZE];
+    
+    private int[] stocks = new int[LOAD_BATCH_SIZE];
+    
+    private int[] categoryIds = new int[LOAD_BATCH_SIZE];
+    
+    private String[] names = new String[LOAD_BATCH_SIZE];
+    
+    private long[] versions = new long[LOAD_BATCH_SIZE];
+    
+    // Tombstones of deleted products with the version they were deleted at. A stale save only
+    // trails its delete by the time between a commit and its listeners running, so they expire.
+    private final Cache<Long, Long> deletedIds = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    
+    // Loaded before the web server accepts requests, so browse queries never see a partial catalog
+    @PostConstruct
+    void load() {
+        long afterId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(LOAD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (Product product : batch) {
+                    upsert(product.getId(), product.getPrice(), product.getStock(),
+                            product.getCategory().getId(), product.getName(), product.getVersion());
+                    afterId = product.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        log.info("Columnar catalog loaded {} products", size);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ProductChangedEvent.Type.DELETED) {
+                deletedIds.put(event.id(), event.version() != null ? event.version() : 0);
+                remove(event.id());
+            } else {
+                upsert(event.id(), event.price(), event.stock(), event.categoryId(), event.name(), event.version());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Same contract as the database listing: rows after the position in the query's
+    // order, at most limit of them. A null categoryId matches every category.
+    public List<ProductResponse> find(ProductQuery query, Integer categoryId, ProductQuery.Position position, int limit) {
+        Filter filter = new Filter(
+                categoryId,
+                query.minPrice() != null ? toCents(query.minPrice(), RoundingMode.CEILING) : Long.MIN_VALUE,
+                query.maxPrice() != null ? toCents(query.maxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE,
+                query.inStockOnly(),
+                query.namePrefix());
+        lock.readLock().lock();
+        try {
+            int[] rows = query.sort() == ProductQuery.SortField.ID
+                    ? scanById(filter, position, query.descending(), limit)
+                    : selectTop(filter, query, position, limit);
+            List<ProductResponse> page = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                page.add(new ProductResponse(ids[row], names[row], BigDecimal.valueOf(priceCents[row], 2),
+                        stocks[row], categoryService.getCategoryName(categoryIds[row])));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Rows are in id order already, so an id-sorted page is a walk from the cursor
+    private int[] scanById(Filter filter, ProductQuery.Position position, boolean descending, int limit) {
+        int start;
+        if (position == null) {
+            start = descending ? size - 1 : 0;
+        } else {
+            int found = Arrays.binarySearch(ids, 0, size, position.id());
+            int insertion = found >= 0 ? found : -found - 1;
+            start = descending ? insertion - 1 : (found >= 0 ? found + 1 : insertion);
+        }
+        int[] rows = new int[limit];
+        int count = 0;
+        int step = descending ? -1 : 1;
+        for (int row = start; row >= 0 && row < size && count < limit; row += step) {
+            if (filter.matches(row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+    
+    // Keeps the limit best rows past the cursor in a max-heap ordered by the sort,
+    // then heapsorts it in place: O(n log limit) with no full sort of the matches
+    private int[] selectTop(Filter filter, ProductQuery query, ProductQuery.Position position, int limit) {
+        ProductQuery.SortField sort = query.sort();
+        int direction = query.descending() ? -1 : 1;
+        long cursorCents = position != null && sort == ProductQuery.SortField.PRICE
+                ? toCents((BigDecimal) position.key(), RoundingMode.CEILING) : 0;
+        
+        int[] heap = new int[limit];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (!filter.matches(row)) {
+                continue;
+            }
+            if (position != null && direction * compareToPosition(row, sort, position, cursorCents) <= 0) {
+                continue;
+            }
+            if (count < limit) {
+                heap[count] = row;
+                siftUp(heap, count++, sort, direction);
+            } else if (direction * compareRows(row, heap[0], sort) < 0) {
+                heap[0] = row;
+                siftDown(heap, 0, count, sort, direction);
+            }
+        }
+        for (int end = count - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, 0, end, sort, direction);
+        }
+        return Arrays.copyOf(heap, count);
+    }
+    
+    private void siftUp(int[] heap, int index, ProductQuery.SortField sort, int direction) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (direction * compareRows(heap[parent], row, sort) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+    
+    private void siftDown(int[] heap, int index, int length, ProductQuery.SortField sort, int direction) {
+        int row = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && direction * compareRows(heap[child + 1], heap[child], sort) > 0) {
+                child++;
+            }
+            if (direction * compareRows(heap[child], row, sort) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+    
+    // Ascending order of the sort key with the id as tie-breaker, like the SQL ORDER BY key, id
+    private int compareRows(int a, int b, ProductQuery.SortField sort) {
+        int result = switch (sort) {
+            case PRICE -> Long.compare(priceCents[a], priceCents[b]);
+            case NAME -> names[a].compareTo(names[b]);
+            case STOCK -> Integer.compare(stocks[a], stocks[b]);
+            case ID -> 0;
+        };
+        return result != 0 ? result : Long.compare(ids[a], ids[b]);
+    }
+    
+    private int compareToPosition(int row, ProductQuery.SortField sort, ProductQuery.Position position, long cursorCents) {
+        int result = switch (sort) {
+            case PRICE -> Long.compare(priceCents[row], cursorCents);
+            case NAME -> names[row].compareTo((String) position.key());
+            case STOCK -> Integer.compare(stocks[row], (Integer) position.key());
+            case ID -> 0;
+        };
+        return result != 0 ? result : Long.compare(ids[row], position.id());
+    }
+    
+    private void upsert(long id, BigDecimal price, Integer stock, Integer categoryId, String name, Long version) {
+        long rowVersion = version != null ? version : 0;
+        Long deletedAt = deletedIds.getIfPresent(id);
+        if (deletedAt != null && deletedAt >= rowVersion) {
+            return;
+        }
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0 && versions[row] > rowVersion) {
+            return;
+        }
+        if (row < 0) {
+            row = -row - 1;
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 1;
+                ids = Arrays.copyOf(ids, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                stocks = Arrays.copyOf(stocks, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                names = Arrays.copyOf(names, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+            }
+            // New ids come from a sequence, so this is almost always an append
+            shift(row, row + 1, size - row);
+            size++;
+            ids[row] = id;
+        }
+        priceCents[row] = toCents(price, RoundingMode.HALF_UP);
+        stocks[row] = stock != null ? stock : 0;
+        categoryIds[row] = categoryId;
+        names[row] = name;
+        versions[row] = rowVersion;
+    }
+    
+    private void remove(long id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0) {
+            shift(row + 1, row, size - row - 1);
+            size--;
+            names[size] = null;
+        }
+    }
+    
+    private void shift(int from, int to, int length) {
+        if (length > 0) {
+            System.arraycopy(ids, from, ids, to, length);
+            System.arraycopy(priceCents, from, priceCents, to, length);
+            System.arraycopy(stocks, from, stocks, to, length);
+            System.arraycopy(categoryIds, from, categoryIds, to, length);
+            System.arraycopy(names, from, names, to, length);
+            System.arraycopy(versions, from, versions, to, length);
+        }
+    }
+    
+    private static long toCents(BigDecimal amount, RoundingMode rounding) {
+        return amount.movePointRight(2).setScale(0, rounding).longValue();
+    }
+    
+    // Compared against the primitive columns, prices in whole cents
+    private final class Filter {
+        private final Integer categoryId;
+        private final long minCents;
+        private final long maxCents;
+        private final boolean inStockOnly;
+        private final String namePrefix;
+        
+        private Filter(Integer categoryId, long minCents, long maxCents, boolean inStockOnly, String namePrefix) {
+            this.categoryId = categoryId;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.inStockOnly = inStockOnly;
+            this.namePrefix = namePrefix;
+        }
+        
+        private boolean matches(int row) {
+            return (categoryId == null || categoryIds[row] == categoryId)
+                    && priceCents[row] >= minCents
+                    && priceCents[row] <= maxCents
+                    && (!inStockOnly || stocks[row] > 0)
+                    && (namePrefix == null || names[row].startsWith(namePrefix));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductCacheStatsResponse;
+import com.esataydin.product.dto.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Bounded in-process cache of product snapshots keyed by product id.
+// Caffeine evicts by size (W-TinyLFU) and by age (configured TTL).
+@Component
+public class ProductCache {
+    
+    private final Cache<Long, ProductResponse> cache;
+    
+    public ProductCache(@Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+    
+    public ProductResponse get(Long id, Function<Long, ProductResponse> loader) {
+        return cache.get(id, loader);
+    }
+    
+    // Loads all missing ids with a single call to the bulk loader; ids the loader
+    // does not return are left out of the result
+    public Map<Long, ProductResponse> getAll(Collection<Long> ids,
+                                             Function<Set<? extends Long>, Map<Long, ProductResponse>> bulkLoader) {
+        return cache.getAll(ids, bulkLoader);
+    }
+    
+    // Evict now and, inside a transaction, once more after commit so that a
+    // concurrent reader cannot re-cache the pre-commit row
+    public void evict(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+    
+    public ProductCacheStatsResponse getStats() {
+        CacheStats stats = cache.stats();
+        return new ProductCacheStatsResponse(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate()
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.entity.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// JPA entity listener for Product. The write paths that go through Hibernate
+// (ProductService, bulk import) are covered here, so in-memory read models that
+// subscribe to ProductChangedEvent stay in sync without each caller notifying them.
+// Order stock reservations are bulk UPDATEs and publish the event themselves.
+@Component
+public class ProductChangeListener {
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    public void onSave(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChangedEvent.Type.SAVED, product));
+    }
+    
+    @PostRemove
+    public void onRemove(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChangedEvent.Type.DELETED, product));
+    }
+}
@@ -0,0 +1,38 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.ProductRepository;
+
+import java.math.BigDecimal;
+
+// Snapshot of a product row after an insert, update or delete. Published by
+// ProductChangeListener, or by ProductService for order stock updates, and
+// delivered to listeners once the transaction commits. Commits of concurrent
+// transactions can deliver them out of order; the row version tells which is newer.
+// Carries the category id only: resolving the name could load a proxy mid-flush.
+public record ProductChangedEvent(
+    Type type,
+    Long id,
+    String name,
+    BigDecimal price,
+    Integer stock,
+    Integer categoryId,
+    Long version
+) {
+    
+    public enum Type {
+        SAVED, DELETED
+    }
+    
+    static ProductChangedEvent of(Type type, Product product) {
+        return new ProductChangedEvent(type, product.getId(), product.getName(), product.getPrice(),
+                product.getStock(), product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getVersion());
+    }
+    
+    // For rows changed by bulk UPDATEs, which the entity listener does not see
+    static ProductChangedEvent saved(ProductRepository.ProductState product) {
+        return new ProductChangedEvent(Type.SAVED, product.id(), product.name(), product.price(),
+                product.stock(), product.categoryId(), product.version());
+    }
+}
@@ -0,0 +1,95 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Streams the whole catalog row by row from a database cursor, so heap use stays
+// constant no matter how many products are exported. CSV output uses the same
+// columns as the bulk import (plus id), so an export can be imported again.
+@Service
+public class ProductExportService {
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ProductMapper productMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${product.export.clear-interval:1000}")
+    private int clearInterval;
+    
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream output, ProductFileFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == ProductFileFormat.CSV) {
+            writer.write("id,name,price,stock,category\n");
+        }
+        
+        long rows = 0;
+        try (Stream<Product> products = productRepository.streamAllOrderById()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                ProductResponse product = productMapper.toResponse(iterator.next());
+                if (format == ProductFileFormat.CSV) {
+                    writeCsvRow(writer, product);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(product));
+                    writer.write('\n');
+                }
+                
+                // Detach what has been written so the persistence context does not grow
+                if (++rows % clearInterval == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        writer.flush();
+    }
+    
+    private void writeCsvRow(Writer writer, ProductResponse product) throws IOException {
+        writer.write(String.valueOf(product.id()));
+        writer.write(',');
+        writer.write(csvField(product.name()));
+        writer.write(',');
+        writer.write(product.price().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(product.stock()));
+        writer.write(',');
+        writer.write(csvField(product.category()));
+        writer.write('\n');
+    }
+    
+    // Quotes fields containing separators, quotes or line breaks, doubling inner quotes
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
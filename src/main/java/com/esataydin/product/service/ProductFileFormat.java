@@ -0,0 +1,6 @@
+package com.esataydin.product.service;
+
+// File formats accepted by the bulk import and written by the export
+public enum ProductFileFormat {
+    NDJSON, CSV
+}
@@ -0,0 +1,275 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductCreateRequest;
+import com.esataydin.product.dto.ProductImportError;
+import com.esataydin.product.dto.ProductImportResponse;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.exception.ProductException;
+import com.esataydin.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Streams a bulk product file and imports it chunk by chunk, so memory use
+// depends on the chunk size and not on the size of the file
+@Service
+public class ProductImportService {
+    
+    private static final List<String> CSV_COLUMNS = List.of("name", "price", "stock", "category");
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${product.import.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${product.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+    
+    public ProductImportResponse importProducts(InputStream input, ProductFileFormat format) {
+        ImportReport report = new ImportReport();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            int[] csvColumns = format == ProductFileFormat.CSV ? readCsvHeader(reader) : null;
+            
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = format == ProductFileFormat.CSV ? 1 : 0;
+            while ((line = reader.readLine()) != null) {
+                long recordLine = ++lineNumber;
+                if (line.isBlank()) {
+                    continue;
+                }
+                // A quoted CSV field may contain line breaks, so a record continues
+                // on the next lines until its quotes are balanced
+                if (format == ProductFileFormat.CSV) {
+                    String next;
+                    while (hasOpenQuote(line) && (next = reader.readLine()) != null) {
+                        line = line + '\n' + next;
+                        lineNumber++;
+                    }
+                }
+                report.processed++;
+                try {
+                    ProductCreateRequest request = format == ProductFileFormat.CSV
+                            ? parseCsvRow(line, csvColumns)
+                            : objectMapper.readValue(line, ProductCreateRequest.class);
+                    chunk.add(new ImportRow(recordLine, request));
+                } catch (JsonProcessingException e) {
+                    report.fail(recordLine, "Malformed JSON");
+                } catch (IllegalArgumentException e) {
+                    report.fail(recordLine, e.getMessage());
+                }
+                
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, report);
+            }
+        } catch (IOException e) {
+            throw new ProductException("Failed to read import stream", e);
+        }
+        report.errors.sort(Comparator.comparingLong(ProductImportError::line));
+        return new ProductImportResponse(report.processed, report.imported, report.failed, report.errors);
+    }
+    
+    private void importChunk(List<ImportRow> chunk, ImportReport report) {
+        // Validate rows and reject names repeated within the chunk
+        List<ImportRow> validRows = new ArrayList<>(chunk.size());
+        Set<String> chunkNames = new HashSet<>();
+        for (ImportRow row : chunk) {
+            Set<ConstraintViolation<ProductCreateRequest>> violations = validator.validate(row.request());
+            if (!violations.isEmpty()) {
+                report.fail(row.line(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!chunkNames.add(row.request().getName())) {
+                report.fail(row.line(), "Duplicate product name in import: '" + row.request().getName() + "'");
+            } else {
+                validRows.add(row);
+            }
+        }
+        if (validRows.isEmpty()) {
+            return;
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            // One set query for the whole chunk instead of existsByName per row
+            Set<String> existingNames = productRepository.findExistingNames(chunkNames);
+            List<ProductCreateRequest> inserts = new ArrayList<>(validRows.size());
+            for (ImportRow row : validRows) {
+                if (existingNames.contains(row.request().getName())) {
+                    report.fail(row.line(), "Product with name '" + row.request().getName() + "' already exists");
+                } else {
+                    inserts.add(row.request());
+                }
+            }
+            
+            // Resolve each distinct category once per chunk
+            Map<String, Category> categories = new HashMap<>();
+            for (ProductCreateRequest request : inserts) {
+                categories.computeIfAbsent(request.getCategory().trim().toLowerCase(Locale.ROOT),
+                        key -> categoryService.resolve(request.getCategory()));
+            }
+            
+            // Sequence ids let Hibernate send the whole chunk as JDBC batches
+            entityManager.unwrap(Session.class).setJdbcBatchSize(inserts.size());
+            Map<Category, int[]> countDeltas = new HashMap<>();
+            for (ProductCreateRequest request : inserts) {
+                Category category = categories.get(request.getCategory().trim().toLowerCase(Locale.ROOT));
+                Product product = new Product(request.getName(), request.getPrice(), request.getStock(), category);
+                entityManager.persist(product);
+                int[] delta = countDeltas.computeIfAbsent(category, key -> new int[2]);
+                delta[0]++;
+                delta[1] += product.isInStock() ? 1 : 0;
+            }
+            countDeltas.forEach((category, delta) -> categoryService.adjustCounts(category, delta[0], delta[1]));
+            entityManager.flush();
+            entityManager.clear();
+            report.imported += inserts.size();
+        });
+    }
+    
+    // Maps the header columns to their positions so the columns can come in any order
+    private int[] readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new ProductException("CSV import is empty, expected a header row");
+        }
+        List<String> columns = parseCsvLine(header.replace("\uFEFF", "")).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        int[] positions = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            positions[i] = columns.indexOf(CSV_COLUMNS.get(i));
+            if (positions[i] < 0) {
+                throw new ProductException("CSV header must contain the columns " + String.join(", ", CSV_COLUMNS));
+            }
+        }
+        return positions;
+    }
+    
+    private ProductCreateRequest parseCsvRow(String line, int[] columns) {
+        List<String> fields = parseCsvLine(line);
+        String name = field(fields, columns[0]);
+        String price = field(fields, columns[1]);
+        String stock = field(fields, columns[2]);
+        String category = field(fields, columns[3]);
+        try {
+            return new ProductCreateRequest(
+                    name,
+                    price != null ? new BigDecimal(price) : null,
+                    stock != null ? Integer.valueOf(stock) : null,
+                    category
+            );
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in price or stock");
+        }
+    }
+    
+    private String field(List<String> fields, int position) {
+        if (position >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    // Escaped quotes come in pairs, so an odd count means a quoted field is still open
+    private boolean hasOpenQuote(String record) {
+        return record.chars().filter(c -> c == '"').count() % 2 != 0;
+    }
+    
+    // Splits one CSV record, honouring double quotes and "" escapes
+    private List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+    
+    private record ImportRow(long line, ProductCreateRequest request) {
+    }
+    
+    // Running totals; only the first maxReportedErrors errors are kept
+    private class ImportReport {
+        private long processed;
+        private long imported;
+        private long failed;
+        private final List<ProductImportError> errors = new ArrayList<>();
+        
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportError(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.esataydin.product.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Already-encoded JSON bodies of catalog reads, keyed by the catalog version they
+// were built at. A catalog change bumps the version, so stale bodies are never
+// looked up again and age out under the byte budget. The version only sees this
+// instance's changes; the expiry bounds how long a change made through another
+// instance can go unnoticed.
+@Component
+public class ProductJsonCache {
+    
+    private final Cache<String, byte[]> cache;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public ProductJsonCache(@Value("${product.response-cache.maximum-size:32MB}") DataSize maximumSize,
+                            @Value("${product.response-cache.expire-after-write:60s}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String key, byte[] body) -> key.length() + body.length)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+    
+    // The version is read before the loader runs, so a body can only ever be
+    // filed under a version at or before the data it contains
+    public byte[] get(String key, Supplier<?> loader) {
+        return cache.get(catalogVersion.current() + "|" + key, versionedKey -> serialize(loader.get()));
+    }
+    
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize catalog response", e);
+        }
+    }
+}
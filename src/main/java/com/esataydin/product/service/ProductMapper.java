@@ -0,0 +1,24 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Builds ProductResponse from a loaded entity, for the write paths and the export
+@Component
+public class ProductMapper {
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    public ProductResponse toResponse(Product product) {
+        return new ProductResponse(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                product.getStock(),
+                categoryService.getCategoryName(product.getCategory())
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.exception.ProductException;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+// Filters and sort order of a product listing. Normalized on construction so that
+// equivalent requests compare equal and share one response cache entry.
+public record ProductQuery(
+    String category,
+    BigDecimal minPrice,
+    BigDecimal maxPrice,
+    boolean inStockOnly,
+    String namePrefix,
+    SortField sort,
+    boolean descending
+) {
+    
+    public static final ProductQuery ALL = new ProductQuery(null, null, null, false, null, SortField.ID, false);
+    
+    public enum SortField {
+        ID("id"), PRICE("price"), NAME("name"), STOCK("stock");
+        
+        private final String attribute;
+        
+        SortField(String attribute) {
+            this.attribute = attribute;
+        }
+        
+        public String attribute() {
+            return attribute;
+        }
+        
+        public static SortField parse(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ProductException("Unsupported sort field: " + value);
+            }
+        }
+    }
+    
+    // Last row of the previous page: its id and, unless sorting by id, its sort key
+    // as BigDecimal (price), String (name) or Integer (stock)
+    public record Position(Long id, Object key) {
+    }
+    
+    public ProductQuery {
+        category = category == null || category.isBlank() ? null : category.trim().toLowerCase(Locale.ROOT);
+        namePrefix = namePrefix == null || namePrefix.isEmpty() ? null : namePrefix;
+        sort = sort != null ? sort : SortField.ID;
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new ProductException("minPrice cannot be greater than maxPrice");
+        }
+    }
+    
+    public static boolean parseDescending(String order) {
+        if (order == null || order.isBlank() || order.trim().equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (order.trim().equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new ProductException("Unsupported sort order: " + order);
+    }
+}
@@ -0,0 +1,224 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// In-memory inverted index over product name and category. Terms are kept in a
+// sorted map so prefix lookups are a sub-map range; fuzzy lookups only scan terms
+// sharing the first letter. Built at startup and updated per committed change.
+@Component
+public class ProductSearchIndex {
+    
+    private static final int NAME_FIELD = 1;
+    
+    private static final int CATEGORY_FIELD = 2;
+    
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    // term -> (product id -> bit mask of the fields containing the term)
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    
+    private final Map<Long, IndexedProduct> documents = new ConcurrentHashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long afterId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                index(product.getId(), product.getName(), categoryService.getCategoryName(product.getCategory()));
+                afterId = product.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            remove(event.id());
+        } else {
+            index(event.id(), event.name(), categoryService.getCategoryName(event.categoryId()));
+        }
+    }
+    
+    public synchronized void index(Long id, String name, String category) {
+        IndexedProduct previous = documents.get(id);
+        if (previous != null && Objects.equals(previous.name(), name) && Objects.equals(previous.category(), category)) {
+            return; // stock or price change, nothing searchable changed
+        }
+        remove(id);
+        
+        Map<String, Integer> fieldsByTerm = new HashMap<>();
+        tokenize(name).forEach(term -> fieldsByTerm.merge(term, NAME_FIELD, (a, b) -> a | b));
+        tokenize(category).forEach(term -> fieldsByTerm.merge(term, CATEGORY_FIELD, (a, b) -> a | b));
+        fieldsByTerm.forEach((term, fields) ->
+                postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(id, fields));
+        documents.put(id, new IndexedProduct(name, category, fieldsByTerm.keySet()));
+    }
+    
+    public synchronized void remove(Long id) {
+        IndexedProduct previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            postings.computeIfPresent(term, (key, products) -> {
+                products.remove(id);
+                return products.isEmpty() ? null : products;
+            });
+        }
+    }
+    
+    // Every query term must match an indexed term exactly, as a prefix or within a
+    // small edit distance; documents are ranked by the summed match scores
+    public SearchResult search(String query, long offset, int limit) {
+        List<String> queryTerms = tokenize(query).distinct().collect(Collectors.toList());
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        
+        Map<Long, Double> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Double> termScores = scoreTerm(queryTerm);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Long, Double> matchedSoFar = scores;
+                scores = termScores.entrySet().stream()
+                        .filter(entry -> matchedSoFar.containsKey(entry.getKey()))
+                        .collect(Collectors.toMap(Map.Entry::getKey,
+                                entry -> entry.getValue() + matchedSoFar.get(entry.getKey())));
+            }
+            if (scores.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+        }
+        
+        Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparingInt(entry -> nameLength(entry.getKey()))
+                .thenComparing(Map.Entry::getKey);
+        List<Long> ids = scores.entrySet().stream()
+                .sorted(ranking)
+                .skip(offset)
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        return new SearchResult(ids, scores.size());
+    }
+    
+    public int size() {
+        return documents.size();
+    }
+    
+    private Map<Long, Double> scoreTerm(String queryTerm) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<Long, Integer> exact = postings.get(queryTerm);
+        if (exact != null) {
+            addMatches(scores, exact, 1.0);
+        }
+        
+        String prefixEnd = queryTerm + Character.MAX_VALUE;
+        postings.subMap(queryTerm, false, prefixEnd, false)
+                .forEach((term, products) -> addMatches(scores, products, 0.6));
+        
+        int maxEdits = queryTerm.length() >= 8 ? 2 : queryTerm.length() >= 4 ? 1 : 0;
+        if (maxEdits > 0) {
+            String firstLetter = queryTerm.substring(0, 1);
+            postings.subMap(firstLetter, true, firstLetter + Character.MAX_VALUE, false).forEach((term, products) -> {
+                if (!term.startsWith(queryTerm) && Math.abs(term.length() - queryTerm.length()) <= maxEdits) {
+                    int edits = editDistance(queryTerm, term, maxEdits);
+                    if (edits <= maxEdits) {
+                        addMatches(scores, products, edits == 1 ? 0.4 : 0.2);
+                    }
+                }
+            });
+        }
+        return scores;
+    }
+    
+    // Keeps the best match per document; a hit in the name counts twice as much as in the category
+    private void addMatches(Map<Long, Double> scores, Map<Long, Integer> products, double matchScore) {
+        products.forEach((id, fields) -> {
+            double score = (fields & NAME_FIELD) != 0 ? matchScore * 2 : matchScore;
+            scores.merge(id, score, Math::max);
+        });
+    }
+    
+    private int nameLength(Long id) {
+        IndexedProduct product = documents.get(id);
+        return product != null && product.name() != null ? product.name().length() : Integer.MAX_VALUE;
+    }
+    
+    // Levenshtein distance, giving up as soon as it must exceed maxEdits
+    private static int editDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+    
+    // Lower-cases, strips accents and splits on anything that is not a letter or digit
+    static Stream<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Stream.empty();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(NON_ALPHANUMERIC.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty());
+    }
+    
+    private record IndexedProduct(String name, String category, Set<String> terms) {
+    }
+    
+    public record SearchResult(List<Long> ids, long totalHits) {
+    }
+}
@@ -1,16 +1,42 @@
 package com.esataydin.product.service;
 
+import com.esataydin.product.dto.CategoryResponse;
+import com.esataydin.product.dto.ProductBatchResponse;
+import com.esataydin.product.dto.ProductCacheStatsResponse;
 import com.esataydin.product.dto.ProductCreateRequest;
+import com.esataydin.product.dto.ProductPageResponse;
 import com.esataydin.product.dto.ProductResponse;
+import com.esataydin.product.dto.ProductSearchResponse;
+import com.esataydin.product.dto.ProductSuggestionResponse;
 import com.esataydin.product.dto.ProductUpdateRequest;
+import com.esataydin.product.entity.Category;
 import com.esataydin.product.entity.Product;
 import com.esataydin.product.exception.ProductException;
 import com.esataydin.product.repository.ProductRepository;
+import com.esataydin.product.repository.ProductSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,34 +46,136 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    @Autowired
+    private ProductMapper productMapper;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductSuggester productSuggester;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    // Only present when product.columnar-catalog.enabled is set
+    @Autowired(required = false)
+    private ColumnarCatalog columnarCatalog;
+    
+    @Value("${product.page.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${product.page.max-size:100}")
+    private int maxPageSize;
+    
+    @Value("${product.batch.max-size:200}")
+    private int maxBatchSize;
+    
     // Public methods (no authentication required)
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll()
-                .stream()
-                .map(this::convertToResponse)
+    // Filtered and sorted listing with keyset pagination: the cursor carries the sort
+    // key and id of the last row, so each page is one index seek instead of an OFFSET.
+    // With the columnar catalog enabled the page is served from memory instead.
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductPageResponse getProducts(ProductQuery query, String after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        ProductQuery.Position position = decodeCursor(after, query);
+        Integer categoryId = null;
+        if (query.category() != null) {
+            Optional<Category> match = categoryService.findByName(query.category());
+            if (match.isEmpty()) {
+                return new ProductPageResponse(List.of(), null, false);
+            }
+            categoryId = match.get().getId();
+        }
+        // Fetch one extra row to find out whether another page exists
+        List<ProductResponse> products = columnarCatalog != null
+                ? columnarCatalog.find(query, categoryId, position, pageSize + 1)
+                : findProducts(query, categoryId, position, pageSize + 1);
+        return toPage(products, pageSize, query);
+    }
+    
+    // SUPPORTS so that cache hits do not open a transaction and borrow a connection
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductResponse getProductById(Long id) {
+        return productCache.get(id, productId -> productRepository.findResponseById(productId)
+                .orElseThrow(() -> new ProductException("Product not found with id: " + productId)));
+    }
+    
+    // Cached snapshots in the order of the given ids; all cache misses are loaded
+    // with one query and ids that do not exist are skipped
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ProductResponse> getProductsByIds(List<Long> ids) {
+        Map<Long, ProductResponse> products = productCache.getAll(ids, missingIds ->
+                productRepository.findResponsesByIdIn(new ArrayList<>(missingIds)).stream()
+                        .collect(Collectors.toMap(ProductResponse::id, Function.identity())));
+        return ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> getProductsByCategory(String category) {
-        return productRepository.findByCategoryIgnoreCase(category)
-                .stream()
-                .map(this::convertToResponse)
+    // Multi-get for pages that render many products at once. Duplicates are
+    // collapsed to their first position and unknown ids are reported back.
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductBatchResponse getProductBatch(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ProductException("Product ids cannot be empty");
+        }
+        if (ids.contains(null)) {
+            throw new ProductException("Product id cannot be null");
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.size() > maxBatchSize) {
+            throw new ProductException("Cannot request more than " + maxBatchSize + " products at once");
+        }
+        List<ProductResponse> items = getProductsByIds(distinctIds);
+        Set<Long> found = items.stream()
+                .map(ProductResponse::id)
+                .collect(Collectors.toSet());
+        List<Long> missingIds = distinctIds.stream()
+                .filter(id -> !found.contains(id))
                 .collect(Collectors.toList());
+        return new ProductBatchResponse(items, missingIds);
     }
     
-    @Transactional(readOnly = true)
-    public ProductResponse getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ProductException("Product not found with id: " + id));
-        return convertToResponse(product);
+    // Ranked by the in-memory search index; only the products on the requested page are loaded
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductSearchResponse searchProducts(String query, Integer page, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ProductException("Search query must not be blank");
+        }
+        int pageNumber = page != null ? page : 0;
+        if (pageNumber < 0) {
+            throw new ProductException("Page must not be negative");
+        }
+        int pageSize = resolvePageSize(limit);
+        
+        long offset = (long) pageNumber * pageSize;
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(query, offset, pageSize);
+        List<ProductResponse> items = getProductsByIds(result.ids());
+        return new ProductSearchResponse(items, result.totalHits(), pageNumber, offset + pageSize < result.totalHits());
+    }
+    
+    // Served entirely from the in-memory suggestion trie
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ProductSuggestionResponse> suggestProducts(String prefix, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new ProductException("Limit must be at least 1");
+        }
+        return productSuggester.suggest(prefix, limit != null ? limit : Integer.MAX_VALUE);
     }
     
+    // Reads the maintained category counters, O(#categories) instead of a DISTINCT scan
     @Transactional(readOnly = true)
-    public List<String> getAllCategories() {
-        return productRepository.findAllCategories();
+    public List<CategoryResponse> getAllCategories() {
+        return categoryService.getCategories();
     }
     
     // Admin methods (require ADMIN role)
@@ -62,15 +190,19 @@ public class ProductService {
         product.setName(request.getName());
         product.setPrice(request.getPrice());
         product.setStock(request.getStock());
-        product.setCategory(request.getCategory());
+        product.setCategory(categoryService.resolve(request.getCategory()));
         
         Product savedProduct = productRepository.save(product);
-        return convertToResponse(savedProduct);
+        categoryService.productAdded(savedProduct.getCategory(), savedProduct.isInStock());
+        productCache.evict(savedProduct.getId());
+        return productMapper.toResponse(savedProduct);
     }
     
     public ProductResponse updateProduct(Long id, ProductUpdateRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductException("Product not found with id: " + id));
+        Category previousCategory = product.getCategory();
+        boolean wasInStock = product.isInStock();
         
         // Update only non-null fields
         if (request.getName() != null) {
@@ -91,41 +223,159 @@ public class ProductService {
         }
         
         if (request.getCategory() != null) {
-            product.setCategory(request.getCategory());
+            product.setCategory(categoryService.resolve(request.getCategory()));
         }
         
         Product updatedProduct = productRepository.save(product);
-        return convertToResponse(updatedProduct);
+        categoryService.productChanged(previousCategory, wasInStock, updatedProduct.getCategory(), updatedProduct.isInStock());
+        productCache.evict(id);
+        return productMapper.toResponse(updatedProduct);
     }
     
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new ProductException("Product not found with id: " + id);
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductException("Product not found with id: " + id));
+        productRepository.delete(product);
+        categoryService.productRemoved(product.getCategory(), product.isInStock());
+        productCache.evict(id);
     }
     
     // Internal methods
     
+    private List<ProductResponse> findProducts(ProductQuery query, Integer categoryId,
+                                               ProductQuery.Position position, int limit) {
+        List<Specification<Product>> filters = new ArrayList<>();
+        if (position != null) {
+            filters.add(seek(query, position));
+        }
+        if (categoryId != null) {
+            filters.add(ProductSpecifications.inCategory(categoryId));
+        }
+        if (query.minPrice() != null) {
+            filters.add(ProductSpecifications.priceAtLeast(query.minPrice()));
+        }
+        if (query.maxPrice() != null) {
+            filters.add(ProductSpecifications.priceAtMost(query.maxPrice()));
+        }
+        if (query.inStockOnly()) {
+            filters.add(ProductSpecifications.inStock());
+        }
+        if (query.namePrefix() != null) {
+            filters.add(ProductSpecifications.nameStartsWith(query.namePrefix()));
+        }
+        
+        Sort.Direction direction = query.descending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = query.sort() == ProductQuery.SortField.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, query.sort().attribute(), "id");
+        return productRepository.findResponses(Specification.allOf(filters), sort, limit);
+    }
+    
+    private Specification<Product> seek(ProductQuery query, ProductQuery.Position position) {
+        String attribute = query.sort().attribute();
+        return switch (query.sort()) {
+            case ID -> ProductSpecifications.afterId(position.id(), query.descending());
+            case PRICE -> ProductSpecifications.after(attribute, (BigDecimal) position.key(), position.id(), query.descending());
+            case NAME -> ProductSpecifications.after(attribute, (String) position.key(), position.id(), query.descending());
+            case STOCK -> ProductSpecifications.after(attribute, (Integer) position.key(), position.id(), query.descending());
+        };
+    }
+    
     @Transactional(readOnly = true)
     public Product getProductEntityById(Long id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new ProductException("Product not found with id: " + id));
     }
     
-    public void saveProduct(Product product) {
-        productRepository.save(product);
+    // Reserves stock for an order with one guarded UPDATE per product (stock >= quantity),
+    // sent as one batch in ascending product id order, then reads the products back in
+    // one plain query. The UPDATEs bypass the entity listener, so a complete reservation
+    // evicts the cached snapshots, maintains the category counters and publishes the
+    // change events here. An incomplete one is left to the caller to roll back.
+    public StockReservation reserveStock(SortedMap<Long, Integer> quantities) {
+        List<Long> rejectedIds = productRepository.decrementStock(quantities);
+        
+        Map<Long, ProductResponse> products = new LinkedHashMap<>();
+        for (ProductRepository.ProductState product : productRepository.findStatesByIdIn(quantities.keySet())) {
+            products.put(product.id(), new ProductResponse(product.id(), product.name(), product.price(),
+                    product.stock(), categoryService.getCategoryName(product.categoryId())));
+            if (rejectedIds.isEmpty()) {
+                productCache.evict(product.id());
+                if (product.stock() == 0) {
+                    categoryService.adjustCounts(product.categoryId(), 0, -1);
+                }
+                eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+            }
+        }
+        return new StockReservation(products, rejectedIds);
+    }
+    
+    public ProductCacheStatsResponse getCacheStats() {
+        return productCache.getStats();
     }
     
     // Utility methods
     
-    private ProductResponse convertToResponse(Product product) {
-        return new ProductResponse(
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                product.getStock(),
-                product.getCategory()
-        );
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new ProductException("Limit must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+    
+    private ProductPageResponse toPage(List<ProductResponse> products, int pageSize, ProductQuery query) {
+        boolean hasMore = products.size() > pageSize;
+        List<ProductResponse> items = hasMore ? products.subList(0, pageSize) : products;
+        String nextCursor = hasMore ? encodeCursor(items.get(pageSize - 1), query) : null;
+        return new ProductPageResponse(items, nextCursor, hasMore);
+    }
+    
+    // "id:<id>" for the default order, "<sort>[-desc]:<id>:<sort key>" otherwise;
+    // a cursor is only valid for the sort order it was issued for
+    private String encodeCursor(ProductResponse last, ProductQuery query) {
+        String cursor = cursorPrefix(query) + last.id();
+        cursor += switch (query.sort()) {
+            case ID -> "";
+            case PRICE -> ":" + last.price().toPlainString();
+            case NAME -> ":" + last.name();
+            case STOCK -> ":" + last.stock();
+        };
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private ProductQuery.Position decodeCursor(String cursor, ProductQuery query) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String prefix = cursorPrefix(query);
+            if (!decoded.startsWith(prefix)) {
+                throw new ProductException("Invalid cursor for this sort order: " + cursor);
+            }
+            String[] parts = decoded.substring(prefix.length()).split(":", 2);
+            Long lastId = Long.parseLong(parts[0]);
+            if (query.sort() == ProductQuery.SortField.ID) {
+                return new ProductQuery.Position(lastId, null);
+            }
+            if (parts.length < 2) {
+                throw new ProductException("Invalid cursor: " + cursor);
+            }
+            return new ProductQuery.Position(lastId, switch (query.sort()) {
+                case PRICE -> new BigDecimal(parts[1]);
+                case STOCK -> Integer.valueOf(parts[1]);
+                default -> parts[1];
+            });
+        } catch (IllegalArgumentException e) {
+            throw new ProductException("Invalid cursor: " + cursor, e);
+        }
+    }
+    
+    private String cursorPrefix(ProductQuery query) {
+        return query.sort().attribute() + (query.descending() ? "-desc" : "") + ":";
     }
 }
@@ -0,0 +1,190 @@
+package com.esataydin.product.service;
+
+import com.esataydin.order.repository.OrderItemRepository;
+import com.esataydin.product.dto.ProductSuggestionResponse;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Typeahead suggestions for product names and categories, ranked by units sold.
+// Requests read an immutable SuggestionTrie; name, category, insert and delete
+// events mark it stale and a background thread rebuilds it at most once per
+// rebuild delay and swaps it in. Units sold are re-aggregated on the slower
+// popularity refresh schedule, so orders reorder suggestions with that lag.
+@Component
+@Slf4j
+public class ProductSuggester {
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    @Value("${product.suggest.max-results:10}")
+    private int maxResults;
+    
+    @Value("${product.suggest.rebuild-delay:1s}")
+    private Duration rebuildDelay;
+    
+    @Value("${product.suggest.popularity-refresh:5m}")
+    private Duration popularityRefresh;
+    
+    // Name and category of every product, kept current from ProductChangedEvent
+    private final Map<Long, CatalogEntry> catalog = new ConcurrentHashMap<>();
+    
+    // Units sold per product id as of the last popularity refresh
+    private volatile Map<Long, Long> unitsSold = Map.of();
+    
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile SuggestionTrie trie = SuggestionTrie.EMPTY;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        long afterId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(LOAD_BATCH_SIZE));
+            for (Product product : batch) {
+                catalog.put(product.getId(), new CatalogEntry(product.getName(),
+                        categoryService.getCategoryName(product.getCategory())));
+                afterId = product.getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        unitsSold = loadUnitsSold();
+        rebuild();
+        rebuildExecutor.scheduleWithFixedDelay(this::refreshPopularity,
+                popularityRefresh.toMillis(), popularityRefresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    // Stock and price changes leave the entry as it was and do not trigger a rebuild
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            if (catalog.remove(event.id()) == null) {
+                return;
+            }
+        } else {
+            CatalogEntry entry = new CatalogEntry(event.name(), categoryService.getCategoryName(event.categoryId()));
+            if (entry.equals(catalog.put(event.id(), entry))) {
+                return;
+            }
+        }
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::scheduledRebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public List<ProductSuggestionResponse> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        return trie.lookup(key, Math.min(limit, maxResults));
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+    
+    private void scheduledRebuild() {
+        rebuildScheduled.set(false);
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding the product suggestion trie failed, keeping the previous one", e);
+        }
+    }
+    
+    private void refreshPopularity() {
+        try {
+            unitsSold = loadUnitsSold();
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing product suggestion popularity failed, keeping the previous ranking", e);
+        }
+    }
+    
+    private Map<Long, Long> loadUnitsSold() {
+        return orderItemRepository.sumQuantityByProduct().stream()
+                .collect(Collectors.toMap(OrderItemRepository.ProductSales::getProductId,
+                        OrderItemRepository.ProductSales::getUnitsSold));
+    }
+    
+    private void rebuild() {
+        Map<Long, Long> unitsSold = this.unitsSold;
+        List<Ranked> ranked = new ArrayList<>(catalog.size());
+        Map<String, Ranked> categories = new HashMap<>();
+        catalog.forEach((id, product) -> {
+            long sold = unitsSold.getOrDefault(id, 0L);
+            ranked.add(new Ranked(new ProductSuggestionResponse(product.name(), ProductSuggestionResponse.Type.PRODUCT, id), sold));
+            categories.merge(normalize(product.category()),
+                    new Ranked(new ProductSuggestionResponse(product.category(), ProductSuggestionResponse.Type.CATEGORY, null), sold),
+                    (a, b) -> new Ranked(a.suggestion(), a.popularity() + b.popularity()));
+        });
+        ranked.addAll(categories.values());
+        ranked.sort(Comparator.comparingLong(Ranked::popularity).reversed()
+                .thenComparing(entry -> entry.suggestion().text()));
+        
+        List<SuggestionTrie.Entry> entries = ranked.stream()
+                .map(entry -> new SuggestionTrie.Entry(entry.suggestion(), keys(entry.suggestion().text())))
+                .collect(Collectors.toList());
+        trie = SuggestionTrie.build(entries, maxResults);
+    }
+    
+    // One key per word start, so "head" also suggests "Wireless Headphones"
+    private static List<String> keys(String text) {
+        List<String> words = ProductSearchIndex.tokenize(text).collect(Collectors.toList());
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return new ArrayList<>(keys);
+    }
+    
+    private static String normalize(String text) {
+        return ProductSearchIndex.tokenize(text).collect(Collectors.joining(" "));
+    }
+    
+    private record CatalogEntry(String name, String category) {
+    }
+    
+    private record Ranked(ProductSuggestionResponse suggestion, long popularity) {
+    }
+}
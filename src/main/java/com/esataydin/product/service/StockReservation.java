@@ -0,0 +1,18 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductResponse;
+
+import java.util.List;
+import java.util.Map;
+
+// Outcome of reserving stock for an order. Products holds every requested product that
+// exists, as it is after the update; a rejected product still shows its unchanged stock.
+public record StockReservation(
+    Map<Long, ProductResponse> products,
+    List<Long> rejectedIds
+) {
+    
+    public boolean isComplete() {
+        return rejectedIds.isEmpty();
+    }
+}
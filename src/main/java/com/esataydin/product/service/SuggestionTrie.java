@@ -0,0 +1,140 @@
+package com.esataydin.product.service;
+
+import com.esataydin.product.dto.ProductSuggestionResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Immutable prefix trie flattened into arrays. Every node stores the ids of its
+// top-k suggestions, so a lookup is one walk down the prefix with a binary search
+// per character and no traversal of the subtree below it.
+final class SuggestionTrie {
+    
+    static final SuggestionTrie EMPTY = build(List.of(), 0);
+    
+    private final ProductSuggestionResponse[] suggestions;
+    
+    // Edges of node n are firstEdge[n] until firstEdge[n + 1], sorted by label
+    private final int[] firstEdge;
+    
+    private final char[] edgeLabels;
+    
+    private final int[] edgeTargets;
+    
+    private final int[][] topSuggestions;
+    
+    private SuggestionTrie(ProductSuggestionResponse[] suggestions, int[] firstEdge, char[] edgeLabels,
+                           int[] edgeTargets, int[][] topSuggestions) {
+        this.suggestions = suggestions;
+        this.firstEdge = firstEdge;
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+        this.topSuggestions = topSuggestions;
+    }
+    
+    List<ProductSuggestionResponse> lookup(String prefix, int limit) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = child(node, prefix.charAt(i));
+            if (node < 0) {
+                return List.of();
+            }
+        }
+        int[] top = topSuggestions[node];
+        List<ProductSuggestionResponse> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            result.add(suggestions[top[i]]);
+        }
+        return result;
+    }
+    
+    int nodeCount() {
+        return topSuggestions.length;
+    }
+    
+    private int child(int node, char label) {
+        int low = firstEdge[node];
+        int high = firstEdge[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (edgeLabels[mid] < label) {
+                low = mid + 1;
+            } else if (edgeLabels[mid] > label) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+    
+    // Entries must be ordered best first; each entry may be reachable through several keys
+    static SuggestionTrie build(List<Entry> entries, int topK) {
+        ProductSuggestionResponse[] suggestions = new ProductSuggestionResponse[entries.size()];
+        BuildNode root = new BuildNode();
+        for (int id = 0; id < entries.size(); id++) {
+            Entry entry = entries.get(id);
+            suggestions[id] = entry.suggestion();
+            for (String key : entry.keys()) {
+                BuildNode node = root;
+                node.offer(id, topK);
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), label -> new BuildNode());
+                    node.offer(id, topK);
+                }
+            }
+        }
+        
+        // Number the nodes breadth first, then lay out their edges in that order
+        List<BuildNode> nodes = new ArrayList<>();
+        Deque<BuildNode> queue = new ArrayDeque<>();
+        root.index = 0;
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            nodes.add(node);
+            for (BuildNode child : node.children.values()) {
+                child.index = nodes.size() + queue.size();
+                queue.add(child);
+            }
+        }
+        
+        int[] firstEdge = new int[nodes.size() + 1];
+        char[] edgeLabels = new char[nodes.size() - 1];
+        int[] edgeTargets = new int[nodes.size() - 1];
+        int[][] topSuggestions = new int[nodes.size()][];
+        int edge = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            BuildNode node = nodes.get(n);
+            firstEdge[n] = edge;
+            for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                edgeLabels[edge] = child.getKey();
+                edgeTargets[edge] = child.getValue().index;
+                edge++;
+            }
+            topSuggestions[n] = node.top.stream().mapToInt(Integer::intValue).toArray();
+        }
+        firstEdge[nodes.size()] = edge;
+        return new SuggestionTrie(suggestions, firstEdge, edgeLabels, edgeTargets, topSuggestions);
+    }
+    
+    record Entry(ProductSuggestionResponse suggestion, List<String> keys) {
+    }
+    
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private final List<Integer> top = new ArrayList<>(1);
+        private int index;
+        
+        // Ids arrive in rank order, so the first k distinct ids are the top k
+        private void offer(int id, int topK) {
+            if (top.size() < topK && !top.contains(id)) {
+                top.add(id);
+            }
+        }
+    }
+}
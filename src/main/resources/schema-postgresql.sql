@@ -0,0 +1,5 @@
+-- Runs after Hibernate has created or updated the tables (see spring.sql.init in application.yml).
+-- Indexes JPA cannot declare go here.
+
+-- Lets namePrefix filters (LIKE 'prefix%') use an index range under any database collation
+CREATE INDEX IF NOT EXISTS idx_products_name_pattern ON products (name text_pattern_ops);
@@ -0,0 +1,162 @@
+package com.esataydin.cart.service;
+
+import com.esataydin.cart.entity.CartItem;
+import com.esataydin.cart.repository.CartItemRepository;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.CategoryRepository;
+import com.esataydin.product.repository.ProductRepository;
+import com.esataydin.springecommerceapi.StatementCounter;
+import com.esataydin.springecommerceapi.StatementCounterConfig;
+import com.esataydin.user.entity.User;
+import com.esataydin.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// One shard of two carts and no scheduled flushes, so each test decides when carts
+// are written and which ones get evicted
+@SpringBootTest(properties = {
+        "cart.write-behind.enabled=true",
+        "cart.write-behind.flush-interval=1h",
+        "cart.write-behind.shards=1",
+        "cart.write-behind.max-carts=2",
+        // Own database, so this context's create-drop leaves the other test contexts alone
+        "spring.datasource.url=jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+@Import(StatementCounterConfig.class)
+class WriteBehindCartStoreTest {
+    
+    private static final AtomicInteger names = new AtomicInteger();
+    
+    @Autowired
+    private WriteBehindCartStore cartStore;
+    
+    @Autowired
+    private StatementCounter statementCounter;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Test
+    void changesBetweenFlushesAreWrittenOnce() {
+        User user = user();
+        Product product = product();
+        cartStore.addQuantity(user.getId(), product.getId(), 1, 100);
+        cartStore.flush();
+        
+        statementCounter.reset();
+        cartStore.addQuantity(user.getId(), product.getId(), 1, 100);
+        cartStore.flush();
+        long oneChange = statementCounter.getRoundTrips();
+        
+        statementCounter.reset();
+        for (int i = 0; i < 20; i++) {
+            cartStore.addQuantity(user.getId(), product.getId(), 1, 100);
+        }
+        cartStore.flush();
+        long twentyChanges = statementCounter.getRoundTrips();
+        
+        // Read the existing lines, update them
+        assertThat(oneChange).isEqualTo(2);
+        assertThat(twentyChanges).isEqualTo(oneChange);
+        assertThat(savedQuantities(user)).isEqualTo(Map.of(product.getId(), 22));
+        
+        statementCounter.reset();
+        cartStore.flush();
+        assertThat(statementCounter.getRoundTrips()).isZero();
+    }
+    
+    @Test
+    void dirtyCartsAreNeverEvicted() {
+        Product product = product();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(user());
+            cartStore.addQuantity(users.get(i).getId(), product.getId(), i + 1, 100);
+        }
+        
+        // Five unsaved carts in a shard of two: an evicted one would come back empty from the table
+        for (int i = 0; i < 5; i++) {
+            assertThat(cartStore.getQuantity(users.get(i).getId(), product.getId())).isEqualTo(i + 1);
+            assertThat(savedQuantities(users.get(i))).isEmpty();
+        }
+        
+        cartStore.flush();
+        for (int i = 0; i < 5; i++) {
+            assertThat(savedQuantities(users.get(i))).isEqualTo(Map.of(product.getId(), i + 1));
+        }
+    }
+    
+    @Test
+    void cartsAreRebuiltFromTheTable() {
+        User user = user();
+        Product product = product();
+        CartItem item = cartItemRepository.save(new CartItem(user, product, 3));
+        
+        assertThat(cartStore.getLines(user.getId()))
+                .containsExactly(new CartItemRepository.CartRow(item.getId(), product.getId(), 3));
+        
+        // Once written and evicted by two newer carts, the cart is read back from the table
+        cartStore.addQuantity(user.getId(), product.getId(), 2, 100);
+        cartStore.flush();
+        cartStore.getLines(user().getId());
+        cartStore.getLines(user().getId());
+        CartItem saved = cartItemRepository.findById(item.getId()).orElseThrow();
+        saved.setQuantity(7);
+        cartItemRepository.save(saved);
+        
+        assertThat(cartStore.getQuantity(user.getId(), product.getId())).isEqualTo(7);
+    }
+    
+    @Test
+    @DirtiesContext
+    void shutdownFlushesUnsavedChanges() throws InterruptedException {
+        User user = user();
+        Product product = product();
+        cartStore.addQuantity(user.getId(), product.getId(), 4, 100);
+        assertThat(savedQuantities(user)).isEmpty();
+        
+        cartStore.shutdown();
+        
+        assertThat(savedQuantities(user)).isEqualTo(Map.of(product.getId(), 4));
+    }
+    
+    private Map<Long, Integer> savedQuantities(User user) {
+        return cartItemRepository.findRowsByUserId(user.getId()).stream()
+                .collect(Collectors.toMap(CartItemRepository.CartRow::productId, CartItemRepository.CartRow::quantity));
+    }
+    
+    private User user() {
+        int n = names.incrementAndGet();
+        return userRepository.save(new User("Cart " + n, "write.behind." + n + "@example.com", "secret"));
+    }
+    
+    private Product product() {
+        int n = names.incrementAndGet();
+        Category category = categoryRepository.save(new Category("Write-behind " + n));
+        return productRepository.save(new Product("Write-behind product " + n, new BigDecimal("2.50"), 100, category));
+    }
+}
@@ -0,0 +1,84 @@
+package com.esataydin.springecommerceapi;
+
+import com.esataydin.cart.dto.CartAddRequest;
+import com.esataydin.cart.dto.CartBatchAddRequest;
+import com.esataydin.cart.dto.CartResponse;
+import com.esataydin.cart.service.CartService;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.CategoryRepository;
+import com.esataydin.product.repository.ProductRepository;
+import com.esataydin.user.entity.User;
+import com.esataydin.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts the JDBC round trips of reading and clearing a large cart
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(StatementCounterConfig.class)
+class CartRoundTripTest {
+    
+    @Autowired
+    private StatementCounter statementCounter;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Test
+    void cartIsReadInOneRoundTrip() {
+        User user = userRepository.save(new User("Cart", "cart@example.com", "secret"));
+        cartService.addAllToCart(user.getId(), new CartBatchAddRequest(lines("Cart bench", 40)));
+        
+        statementCounter.reset();
+        CartResponse cart = cartService.getCart(user.getId());
+        long roundTrips = statementCounter.getRoundTrips();
+        
+        assertThat(cart.items()).hasSize(40);
+        assertThat(cart.items().get(0).productCategory()).isEqualTo("Cart bench");
+        assertThat(cart.totalAmount()).isEqualByComparingTo(new BigDecimal("4.25").multiply(BigDecimal.valueOf(cart.totalItems())));
+        assertThat(roundTrips).isEqualTo(1);
+    }
+    
+    @Test
+    void cartIsClearedInOneRoundTrip() {
+        User user = userRepository.save(new User("Cart clear", "cart.clear@example.com", "secret"));
+        cartService.addAllToCart(user.getId(), new CartBatchAddRequest(lines("Cart clear bench", 40)));
+        
+        statementCounter.reset();
+        cartService.clearCart(user.getId());
+        long roundTrips = statementCounter.getRoundTrips();
+        
+        assertThat(cartService.getCart(user.getId()).items()).isEmpty();
+        assertThat(roundTrips).isEqualTo(1);
+    }
+    
+    private List<CartAddRequest> lines(String categoryName, int count) {
+        Category category = categoryRepository.save(new Category(categoryName));
+        List<CartAddRequest> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = productRepository.save(
+                    new Product(categoryName + " product " + i, new BigDecimal("4.25"), 100, category));
+            lines.add(new CartAddRequest(product.getId(), 1 + i % 3));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,99 @@
+package com.esataydin.springecommerceapi;
+
+import com.esataydin.order.dto.OrderCreateRequest;
+import com.esataydin.order.service.OrderService;
+import com.esataydin.product.entity.Category;
+import com.esataydin.product.entity.Product;
+import com.esataydin.product.repository.CategoryRepository;
+import com.esataydin.product.repository.ProductRepository;
+import com.esataydin.user.entity.User;
+import com.esataydin.user.repository.UserRepository;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts the JDBC round trips of one checkout for growing order sizes, with the
+// pooled sequence ids and insert batching of the default configuration and,
+// for comparison, with IDENTITY ids and no batching
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(StatementCounterConfig.class)
+class CheckoutRoundTripTest {
+    
+    @Test
+    void checkoutRoundTripsDoNotGrowWithOrderSize(@Autowired ApplicationContext context) {
+        // Stock update batch, product read, order insert, order item batch, cart delete
+        assertThat(measureCheckouts(context, "checkout")).isEqualTo(Map.of(1, 5L, 10, 5L, 38, 5L));
+    }
+    
+    // The id generation and batching settings before pooled sequences: every order item
+    // is its own INSERT, since an IDENTITY id is only known once the row is written
+    @Nested
+    @TestPropertySource(properties = {
+            "spring.jpa.mapping-resources=META-INF/identity-ids.xml",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=1",
+            "spring.jpa.properties.hibernate.order_inserts=false",
+            "spring.jpa.properties.hibernate.order_updates=false",
+            // Own database, since the IDENTITY columns change the schema
+            "spring.datasource.url=jdbc:h2:mem:checkout-identity;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+    })
+    class WithIdentityIdsAndNoBatching {
+        
+        @Test
+        void checkoutRoundTripsGrowWithOrderSize(@Autowired ApplicationContext context) {
+            // Stock update batch, product read, order insert, one insert per item, cart delete
+            assertThat(measureCheckouts(context, "identity")).isEqualTo(Map.of(1, 5L, 10, 14L, 38, 42L));
+        }
+    }
+    
+    // Takes the context of the calling test, since the nested class runs in its own
+    private Map<Integer, Long> measureCheckouts(ApplicationContext context, String name) {
+        StatementCounter statementCounter = context.getBean(StatementCounter.class);
+        OrderService orderService = context.getBean(OrderService.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        CategoryRepository categoryRepository = context.getBean(CategoryRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        
+        User user = userRepository.save(new User("Checkout", name + "@example.com", "secret"));
+        Category category = categoryRepository.save(new Category("Bench " + name));
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Product product = productRepository.save(
+                    new Product("Checkout product " + i, new BigDecimal("9.99"), 1000, category));
+            productIds.add(product.getId());
+        }
+        
+        // The first checkout fetches the orders and order_items id blocks; the
+        // measured ones then use 1 + 10 + 38 more ids and stay inside them
+        orderService.createOrder(user.getId(), new OrderCreateRequest(lines(productIds, 1)));
+        
+        Map<Integer, Long> roundTrips = new TreeMap<>();
+        for (int items : new int[]{1, 10, 38}) {
+            statementCounter.reset();
+            orderService.createOrder(user.getId(), new OrderCreateRequest(lines(productIds, items)));
+            roundTrips.put(items, statementCounter.getRoundTrips());
+        }
+        return roundTrips;
+    }
+    
+    private List<OrderCreateRequest.OrderItemRequest> lines(List<Long> productIds, int items) {
+        List<OrderCreateRequest.OrderItemRequest> lines = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            lines.add(new OrderCreateRequest.OrderItemRequest(productIds.get(i), 1));
+        }
+        return lines;
+    }
+}
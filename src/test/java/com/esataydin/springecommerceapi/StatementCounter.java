@@ -0,0 +1,64 @@
+package com.esataydin.springecommerceapi;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wraps the DataSource and counts JDBC round trips: every execute call on a
+// statement counts once, a whole executeBatch counts once
+public class StatementCounter implements BeanPostProcessor {
+    
+    private final AtomicLong roundTrips = new AtomicLong();
+    
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+    
+    public void reset() {
+        roundTrips.set(0);
+    }
+    
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource);
+        }
+        return bean;
+    }
+    
+    private <T> T proxy(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, target, args);
+                    if (method.getName().startsWith("execute") && target instanceof Statement) {
+                        roundTrips.incrementAndGet();
+                    }
+                    return wrap(method.getReturnType(), result);
+                }));
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object wrap(Class<?> returnType, Object result) {
+        if (result == null || !returnType.isInterface()) {
+            return result;
+        }
+        if (Connection.class.isAssignableFrom(returnType) || Statement.class.isAssignableFrom(returnType)) {
+            return proxy((Class) returnType, result);
+        }
+        return result;
+    }
+    
+    private Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.esataydin.springecommerceapi;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+// Registers the StatementCounter that wraps the DataSource, for tests counting JDBC round trips
+@TestConfiguration
+public class StatementCounterConfig {
+    
+    @Bean
+    static StatementCounter statementCounter() {
+        return new StatementCounter();
+    }
+}